@@ -0,0 +1,137 @@
+package com.example.myapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.view.Gravity;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.example.myapplication.SmoothWaveDrawable.RENDER_MODE_DIRECT;
+import static com.example.myapplication.SmoothWaveDrawable.RENDER_MODE_LAYER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 项目：  My Application
+ * 类名：  SmoothCylindricalRenderModeTest.java
+ * 时间：  2026/10/18 22:40
+ * 描述：  进度条两种绘制方式的像素对比:RENDER_MODE_LAYER(离屏图层加CLEAR擦除)和RENDER_MODE_DIRECT(头部与底座求交)
+ * 在4个依附方向、直角/圆润底座、不同进度下画出的形状一致.两种方式只在抗锯齿边缘有细微差别
+ */
+@RunWith(AndroidJUnit4.class)
+public class SmoothCylindricalRenderModeTest {
+    private static final int SIZE = 300;
+    /**
+     * 竖向(依附上/下)和横向(依附左/右)进度条所在区域
+     */
+    private static final Rect VERTICAL_RECT = new Rect(120, 10, 180, 290);
+    private static final Rect HORIZONTAL_RECT = new Rect(10, 120, 290, 180);
+    private static final int[] ALIGNS = {Gravity.LEFT, Gravity.TOP, Gravity.RIGHT, Gravity.BOTTOM};
+    /**
+     * 0.05时进度条头部还在圆润底座的半圆内,1时头部贴着另一端
+     */
+    private static final float[] PERCENTS = {0f, 0.05f, 0.3f, 0.5f, 0.97f, 1f};
+    /**
+     * 单个通道相差超过该值的像素视为不同
+     */
+    private static final int CHANNEL_TOLERANCE = 8;
+    /**
+     * 抗锯齿边缘的像素允许的最大差值
+     */
+    private static final int EDGE_TOLERANCE = 96;
+
+    private Bitmap layerBitmap;
+    private Bitmap directBitmap;
+
+    @Before
+    public void setUp() {
+        layerBitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        directBitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+    }
+
+    @After
+    public void tearDown() {
+        layerBitmap.recycle();
+        directBitmap.recycle();
+    }
+
+    @Test
+    public void layerAndDirect_drawSameShape() {
+        for (int align : ALIGNS) {
+            for (boolean isCircle : new boolean[]{false, true}) {
+                for (float percent : PERCENTS) {
+                    String name = "align " + align + (isCircle ? " circle" : " rect") + " percent " + percent;
+                    draw(layerBitmap, RENDER_MODE_LAYER, align, isCircle, percent);
+                    draw(directBitmap, RENDER_MODE_DIRECT, align, isCircle, percent);
+                    assertSameShape(name, align);
+                }
+            }
+        }
+    }
+
+    private static void draw(Bitmap bitmap, int renderMode, int align, boolean isCircle, float percent) {
+        bitmap.eraseColor(Color.TRANSPARENT);
+        SmoothCylindricalDrawable drawable = new SmoothCylindricalDrawable();
+        drawable.setBounds(0, 0, SIZE, SIZE);
+        drawable.setRenderMode(renderMode);
+        drawable.setAlign(align);
+        drawable.setProgressBottomCircle(isCircle);
+        drawable.setVisibleRect(isVertical(align) ? VERTICAL_RECT : HORIZONTAL_RECT);
+        drawable.setPercent(percent, false);
+        drawable.draw(new Canvas(bitmap));
+    }
+
+    /**
+     * 逐像素比较:不同的像素只能出现在抗锯齿边缘(个数不超过进度条区域的周长,差值有上限),
+     * 并且两张图中不透明部分的外接矩形一致
+     */
+    private void assertSameShape(String name, int align) {
+        Rect area = isVertical(align) ? VERTICAL_RECT : HORIZONTAL_RECT;
+        int differentCount = 0;
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int diff = maxChannelDiff(layerBitmap.getPixel(x, y), directBitmap.getPixel(x, y));
+                if (diff > CHANNEL_TOLERANCE) {
+                    assertTrue(name + " pixel (" + x + ", " + y + ") diff " + diff, diff <= EDGE_TOLERANCE);
+                    differentCount++;
+                }
+            }
+        }
+        int perimeter = 2 * (area.width() + area.height());
+        assertTrue(name + " different pixels " + differentCount, differentCount <= perimeter);
+        assertEquals(name, opaqueBounds(layerBitmap), opaqueBounds(directBitmap));
+    }
+
+    private static int maxChannelDiff(int color1, int color2) {
+        int diff = Math.abs(Color.alpha(color1) - Color.alpha(color2));
+        diff = Math.max(diff, Math.abs(Color.red(color1) - Color.red(color2)));
+        diff = Math.max(diff, Math.abs(Color.green(color1) - Color.green(color2)));
+        return Math.max(diff, Math.abs(Color.blue(color1) - Color.blue(color2)));
+    }
+
+    /**
+     * 透明度过半的像素的外接矩形,没有时为空矩形
+     */
+    private static Rect opaqueBounds(Bitmap bitmap) {
+        Rect bounds = new Rect();
+        for (int y = 0; y < bitmap.getHeight(); y++) {
+            for (int x = 0; x < bitmap.getWidth(); x++) {
+                if (Color.alpha(bitmap.getPixel(x, y)) > 0x80) {
+                    bounds.union(x, y, x + 1, y + 1);
+                }
+            }
+        }
+        return bounds;
+    }
+
+    private static boolean isVertical(int align) {
+        return align == Gravity.TOP || align == Gravity.BOTTOM;
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.myapplication;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 项目：  My Application
+ * 类名：  ChartDataFile.java
+ * 时间：  2026/10/18 19:30
+ * 描述：  列式二进制图表数据文件.整个文件用MappedByteBuffer映射到内存,每一列直接以FloatBuffer/LongBuffer视图
+ * 交给波形和柱状图使用,不解析成PointF/Pair对象,也不拷贝到Java堆上,冷启动耗时基本只有映射文件本身.
+ * 文件格式(全部小端):
+ * <pre>
+ *     文件头,16字节:   int 魔数FILE_MAGIC | int 版本号 | int 序列个数 | int 保留
+ *     序列描述,每个32字节: int 序列类型 | int 数据点个数 | int X列类型 | int 标志位 | long X列偏移 | long Y列偏移
+ *     数据列:          float32或int64,每列起始位置按8字节对齐
+ * </pre>
+ */
+public class ChartDataFile {
+    /**
+     * 魔数,按小端读出为"SWCF"
+     */
+    public static final int FILE_MAGIC = 0x46435753;
+    public static final int FILE_VERSION = 1;
+    /**
+     * 序列类型:波形(X/Y两列)和柱状图(只有数值列)
+     */
+    public static final int SERIES_WAVE = 1;
+    public static final int SERIES_BAR = 2;
+    /**
+     * X列类型:没有X列、float32、int64(例如毫秒时间戳)
+     */
+    public static final int COLUMN_NONE = 0;
+    public static final int COLUMN_FLOAT = 1;
+    public static final int COLUMN_LONG = 2;
+    /**
+     * 标志位:X坐标单调不减,加载时不需要再遍历检查
+     */
+    public static final int FLAG_SORTED_X = 1;
+
+    private static final int HEADER_BYTES = 16;
+    private static final int DESCRIPTOR_BYTES = 32;
+
+    private final ByteBuffer buffer;
+    private final int seriesCount;
+
+    private ChartDataFile(ByteBuffer buffer, int seriesCount) {
+        this.buffer = buffer;
+        this.seriesCount = seriesCount;
+    }
+
+    /**
+     * 映射并校验文件.只读取文件头和序列描述,数据列在第一次访问时才由系统按页读入
+     *
+     * @param file 数据文件
+     * @return 文件不存在、读取失败或格式不正确时返回null
+     */
+    public static ChartDataFile map(File file) {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        MappedByteBuffer mapped;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) { // ByteBuffer只能按int寻址
+                return null;
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // 关闭文件后映射依然有效
+        } catch (IOException e) {
+            return null;
+        }
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        long fileBytes = mapped.capacity();
+        if (fileBytes < HEADER_BYTES || mapped.getInt(0) != FILE_MAGIC || mapped.getInt(4) != FILE_VERSION) {
+            return null;
+        }
+        int seriesCount = mapped.getInt(8);
+        if (seriesCount < 0 || HEADER_BYTES + (long) seriesCount * DESCRIPTOR_BYTES > fileBytes) {
+            return null;
+        }
+        ChartDataFile dataFile = new ChartDataFile(mapped, seriesCount);
+        for (int i = 0; i < seriesCount; i++) {
+            if (!dataFile.isValidSeries(i, fileBytes)) {
+                return null;
+            }
+        }
+        return dataFile;
+    }
+
+    public int getSeriesCount() {
+        return seriesCount;
+    }
+
+    /**
+     * @param seriesIndex 序列序号
+     * @return SERIES_WAVE或SERIES_BAR
+     */
+    public int getSeriesType(int seriesIndex) {
+        return buffer.getInt(descriptor(seriesIndex));
+    }
+
+    public int getSeriesSize(int seriesIndex) {
+        return buffer.getInt(descriptor(seriesIndex) + 4);
+    }
+
+    /**
+     * @param seriesIndex 序列序号
+     * @return COLUMN_NONE、COLUMN_FLOAT或COLUMN_LONG
+     */
+    public int getXColumnType(int seriesIndex) {
+        return buffer.getInt(descriptor(seriesIndex) + 8);
+    }
+
+    public boolean isSortedX(int seriesIndex) {
+        return (buffer.getInt(descriptor(seriesIndex) + 12) & FLAG_SORTED_X) != 0;
+    }
+
+    /**
+     * 获取float32类型的X列视图,直接指向映射的文件内容
+     *
+     * @param seriesIndex 序列序号
+     * @return X列不是float32时返回null
+     */
+    public FloatBuffer getXBuffer(int seriesIndex) {
+        if (getXColumnType(seriesIndex) != COLUMN_FLOAT) {
+            return null;
+        }
+        return column(buffer.getLong(descriptor(seriesIndex) + 16), getSeriesSize(seriesIndex) * 4L).asFloatBuffer();
+    }
+
+    /**
+     * 获取int64类型的X列视图,直接指向映射的文件内容
+     *
+     * @param seriesIndex 序列序号
+     * @return X列不是int64时返回null
+     */
+    public LongBuffer getXLongBuffer(int seriesIndex) {
+        if (getXColumnType(seriesIndex) != COLUMN_LONG) {
+            return null;
+        }
+        return column(buffer.getLong(descriptor(seriesIndex) + 16), getSeriesSize(seriesIndex) * 8L).asLongBuffer();
+    }
+
+    /**
+     * 获取Y列(柱状图为数值列)视图,直接指向映射的文件内容
+     *
+     * @param seriesIndex 序列序号
+     * @return Y列视图
+     */
+    public FloatBuffer getYBuffer(int seriesIndex) {
+        return column(buffer.getLong(descriptor(seriesIndex) + 24), getSeriesSize(seriesIndex) * 4L).asFloatBuffer();
+    }
+
+    private static int descriptor(int seriesIndex) {
+        return HEADER_BYTES + seriesIndex * DESCRIPTOR_BYTES;
+    }
+
+    private ByteBuffer column(long offset, long bytes) {
+        ByteBuffer view = buffer.duplicate();
+        view.position((int) offset);
+        view.limit((int) (offset + bytes));
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN); // slice()之后字节序会恢复成大端
+    }
+
+    private boolean isValidSeries(int seriesIndex, long fileBytes) {
+        int offset = descriptor(seriesIndex);
+        int type = buffer.getInt(offset);
+        long size = buffer.getInt(offset + 4);
+        int xType = buffer.getInt(offset + 8);
+        long xOffset = buffer.getLong(offset + 16);
+        long yOffset = buffer.getLong(offset + 24);
+        if ((type != SERIES_WAVE && type != SERIES_BAR) || size < 0) {
+            return false;
+        }
+        if (yOffset < 0 || yOffset + size * 4 > fileBytes) {
+            return false;
+        }
+        if (xType == COLUMN_NONE) {
+            return type == SERIES_BAR;
+        }
+        long xBytes = xType == COLUMN_FLOAT ? size * 4 : size * 8;
+        return (xType == COLUMN_FLOAT || xType == COLUMN_LONG) && xOffset >= 0 && xOffset + xBytes <= fileBytes;
+    }
+
+    /**
+     * 写出列式二进制图表数据文件.添加序列时只记录数组引用,writeTo()时才写出
+     */
+    public static class Writer {
+        private final List<PendingSeries> seriesList = new ArrayList<>();
+
+        /**
+         * 添加一条波形
+         *
+         * @param xs 数据点X坐标
+         * @param ys 数据点Y坐标
+         * @param count 有效数据点个数
+         * @return this
+         */
+        public Writer addWaveSeries(float[] xs, float[] ys, int count) {
+            seriesList.add(new PendingSeries(SERIES_WAVE, COLUMN_FLOAT, xs, null, ys,
+                    Math.min(count, Math.min(xs.length, ys.length))));
+            return this;
+        }
+
+        /**
+         * 添加一条X坐标为int64(例如毫秒时间戳)的波形
+         *
+         * @param xs 数据点X坐标
+         * @param ys 数据点Y坐标
+         * @param count 有效数据点个数
+         * @return this
+         */
+        public Writer addWaveSeries(long[] xs, float[] ys, int count) {
+            seriesList.add(new PendingSeries(SERIES_WAVE, COLUMN_LONG, null, xs, ys,
+                    Math.min(count, Math.min(xs.length, ys.length))));
+            return this;
+        }
+
+        /**
+         * 添加一组柱状图数值
+         *
+         * @param values 数值
+         * @param count 有效数值个数
+         * @return this
+         */
+        public Writer addBarSeries(float[] values, int count) {
+            seriesList.add(new PendingSeries(SERIES_BAR, COLUMN_NONE, null, null, values,
+                    Math.min(count, values.length)));
+            return this;
+        }
+
+        /**
+         * 写出到文件,已存在的文件会被覆盖.先完整写入同目录下的临时文件并刷到磁盘,再重命名覆盖目标文件,
+         * 写出过程中失败或进程被杀时目标文件保持原样,不会留下写了一半的文件
+         *
+         * @param file 目标文件
+         * @throws IOException 文件超过2GB(映射只能按int寻址)或写出失败
+         */
+        public void writeTo(File file) throws IOException {
+            int seriesCount = seriesList.size();
+            long[] xOffsets = new long[seriesCount];
+            long[] yOffsets = new long[seriesCount];
+            long position = HEADER_BYTES + (long) seriesCount * DESCRIPTOR_BYTES;
+            for (int i = 0; i < seriesCount; i++) {
+                PendingSeries series = seriesList.get(i);
+                int count = series.count;
+                if (series.xType != COLUMN_NONE) {
+                    position = align(position);
+                    xOffsets[i] = position;
+                    position += (long) count * (series.xType == COLUMN_LONG ? 8 : 4);
+                }
+                position = align(position);
+                yOffsets[i] = position;
+                position += count * 4L;
+            }
+            if (position > Integer.MAX_VALUE) { // 读取时ByteBuffer同样只能按int寻址
+                throw new IOException("chart data too large: " + position + " bytes");
+            }
+            File tempFile = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+            boolean isMoved = false;
+            try {
+                try (RandomAccessFile randomAccessFile = new RandomAccessFile(tempFile, "rw");
+                     FileChannel channel = randomAccessFile.getChannel()) {
+                    randomAccessFile.setLength(position);
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, position);
+                    mapped.order(ByteOrder.LITTLE_ENDIAN);
+                    mapped.putInt(0, FILE_MAGIC);
+                    mapped.putInt(4, FILE_VERSION);
+                    mapped.putInt(8, seriesCount);
+                    mapped.putInt(12, 0);
+                    for (int i = 0; i < seriesCount; i++) {
+                        writeSeries(mapped, i, xOffsets[i], yOffsets[i]);
+                    }
+                    mapped.force();
+                    channel.force(true); // 文件长度等元数据也要落盘
+                }
+                if (!tempFile.renameTo(file)) {
+                    throw new IOException("rename " + tempFile + " to " + file + " failed");
+                }
+                isMoved = true;
+            } finally {
+                if (!isMoved) {
+                    //noinspection ResultOfMethodCallIgnored
+                    tempFile.delete();
+                }
+            }
+        }
+
+        private void writeSeries(ByteBuffer mapped, int seriesIndex, long xOffset, long yOffset) {
+            PendingSeries series = seriesList.get(seriesIndex);
+            int count = series.count;
+            int xType = series.xType;
+            boolean isSortedX = true;
+            if (xType == COLUMN_FLOAT) {
+                float[] xs = series.floatXs;
+                for (int i = 0; i < count; i++) {
+                    mapped.putFloat((int) (xOffset + i * 4L), xs[i]);
+                    isSortedX &= i == 0 || xs[i] >= xs[i - 1];
+                }
+            } else if (xType == COLUMN_LONG) {
+                long[] xs = series.longXs;
+                for (int i = 0; i < count; i++) {
+                    mapped.putLong((int) (xOffset + i * 8L), xs[i]);
+                    isSortedX &= i == 0 || xs[i] >= xs[i - 1];
+                }
+            }
+            float[] ys = series.ys;
+            for (int i = 0; i < count; i++) {
+                mapped.putFloat((int) (yOffset + i * 4L), ys[i]);
+            }
+            int offset = descriptor(seriesIndex);
+            mapped.putInt(offset, series.type);
+            mapped.putInt(offset + 4, count);
+            mapped.putInt(offset + 8, xType);
+            mapped.putInt(offset + 12, xType != COLUMN_NONE && isSortedX ? FLAG_SORTED_X : 0);
+            mapped.putLong(offset + 16, xOffset);
+            mapped.putLong(offset + 24, yOffset);
+        }
+
+        private static long align(long position) {
+            return (position + 7) & ~7L;
+        }
+    }
+
+    /**
+     * 待写出的一条序列.X列类型和对应类型的数组放在一起,COLUMN_FLOAT只使用floatXs,COLUMN_LONG只使用longXs
+     */
+    private static class PendingSeries {
+        final int type;
+        final int xType;
+        final float[] floatXs;
+        final long[] longXs;
+        final float[] ys;
+        final int count;
+
+        PendingSeries(int type, int xType, float[] floatXs, long[] longXs, float[] ys, int count) {
+            this.type = type;
+            this.xType = xType;
+            this.floatXs = floatXs;
+            this.longXs = longXs;
+            this.ys = ys;
+            this.count = Math.max(0, count);
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+
+/**
+ * 项目：  My Application
+ * 类名：  CompressedWaveStore.java
+ * 时间：  2026/10/18 18:50
+ * 描述：  压缩存储的波形历史数据,用于在内存中常驻很长的历史,往回滚动时不需要重新拉取.
+ * 编码方式参考Gorilla:X坐标对IEEE位模式做二阶差分(等间隔采样时每个点只占1位),Y坐标与上一个点的位模式异或后
+ * 只保存有效位(取值变化不大时每个点只占几位).数据按每BLOCK_POINTS个点分块保存在byte[]中,块与块之间互不依赖,
+ * 按X窗口解码时二分查找到起始块后顺序解码,直接写入调用方的float数组.
+ * 注:X坐标必须单调不减,编码无损
+ */
+public class CompressedWaveStore {
+    /**
+     * 每块数据点个数
+     */
+    private static final int BLOCK_POINTS = 1024;
+    /**
+     * 新块的初始字节数,写满后翻倍,块封闭时裁剪到实际长度
+     */
+    private static final int INITIAL_BLOCK_BYTES = 256;
+    /**
+     * 每块除编码数据外的额外开销(数组头以及块索引中的各项),计算压缩率用
+     */
+    private static final int BLOCK_OVERHEAD_BYTES = 16 + 4 * 4;
+    private static final int FLOAT_BITS = 32;
+
+    private byte[][] blocks = new byte[4][];
+    /**
+     * 块索引:每块的数据点个数、已写入的位数、第一个/最后一个数据点
+     */
+    private int[] blockSizes = new int[4];
+    private long[] blockBits = new long[4];
+    private float[] blockFirstX = new float[4];
+    private float[] blockLastX = new float[4];
+    private float[] blockLastY = new float[4];
+    private int blockCount;
+    /**
+     * 数据点总数
+     */
+    private int size;
+
+    /**
+     * 编码状态:上一个点X的位模式、上一个X差值、上一个点Y的位模式、上一个异或值有效位的前导零/末尾零个数
+     */
+    private int writeXBits;
+    private long writeDelta;
+    private int writeYBits;
+    private int writeLeading;
+    private int writeTrailing;
+
+    /**
+     * 解码状态,跨调用复用,不创建对象
+     */
+    private byte[] readBlock;
+    private long readPosition;
+    private int readXBits;
+    private long readDelta;
+    private int readYBits;
+    private int readLeading;
+    private int readTrailing;
+    private float readX;
+    private float readY;
+
+    /**
+     * 在末尾追加一个数据点
+     *
+     * @param x 数据点X坐标,不能小于上一个点的X坐标
+     * @param y 数据点Y坐标
+     * @return false X坐标无序或不是数字,没有追加
+     */
+    public boolean append(float x, float y) {
+        if (Float.isNaN(x) || (size > 0 && x < blockLastX[blockCount - 1])) {
+            return false;
+        }
+        if (blockCount == 0 || blockSizes[blockCount - 1] == BLOCK_POINTS) {
+            startBlock(x, y);
+        } else {
+            encodeX(Float.floatToRawIntBits(x));
+            encodeY(Float.floatToRawIntBits(y));
+        }
+        int block = blockCount - 1;
+        blockSizes[block]++;
+        blockLastX[block] = x;
+        blockLastY[block] = y;
+        size++;
+        return true;
+    }
+
+    /**
+     * 在末尾追加多个数据点.遇到X坐标无序的点时停止
+     *
+     * @param xs 数据点X坐标
+     * @param ys 数据点Y坐标
+     * @param count 要追加的数据点个数,超出数组长度的部分会被忽略
+     * @return 实际追加的数据点个数
+     */
+    public int append(float[] xs, float[] ys, int count) {
+        if (xs == null || ys == null) {
+            return 0;
+        }
+        int usable = Math.min(count, Math.min(xs.length, ys.length));
+        for (int i = 0; i < usable; i++) {
+            if (!append(xs[i], ys[i])) {
+                return i;
+            }
+        }
+        return Math.max(0, usable);
+    }
+
+    public void clear() {
+        Arrays.fill(blocks, 0, blockCount, null);
+        blockCount = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 获取X窗口解码结果的点数上限,用于准备解码用的数组
+     *
+     * @param lowerX 窗口下限
+     * @param upperX 窗口上限
+     * @return 点数上限
+     */
+    public int getWindowCapacity(float lowerX, float upperX) {
+        if (size == 0 || upperX < lowerX) {
+            return 0;
+        }
+        int capacity = 2; // 窗口左右两侧各多带一个点
+        for (int block = findStartBlock(lowerX); block < blockCount && blockFirstX[block] <= upperX; block++) {
+            capacity += blockSizes[block];
+        }
+        return capacity;
+    }
+
+    /**
+     * 按X窗口顺序解码,直接写入调用方的数组.窗口左右两侧各多带一个点,曲线在窗口边缘保持连续
+     *
+     * @param lowerX 窗口下限
+     * @param upperX 窗口上限
+     * @param outXs 输出X坐标,长度不足时只写入前面的部分
+     * @param outYs 输出Y坐标
+     * @return 写入的点数
+     */
+    public int decode(float lowerX, float upperX, float[] outXs, float[] outYs) {
+        if (size == 0 || upperX < lowerX || outXs == null || outYs == null) {
+            return 0;
+        }
+        int limit = Math.min(outXs.length, outYs.length);
+        int count = 0;
+        int startBlock = findStartBlock(lowerX);
+        boolean hasBefore = startBlock > 0; // 窗口左侧的点,先取上一块的最后一个点
+        float beforeX = hasBefore ? blockLastX[startBlock - 1] : 0;
+        float beforeY = hasBefore ? blockLastY[startBlock - 1] : 0;
+        boolean isInWindow = false;
+        for (int block = startBlock; block < blockCount; block++) {
+            int blockSize = blockSizes[block];
+            startRead(block);
+            for (int i = 0; i < blockSize; i++) {
+                readNext(i == 0);
+                if (!isInWindow) {
+                    if (readX < lowerX) {
+                        hasBefore = true;
+                        beforeX = readX;
+                        beforeY = readY;
+                        continue;
+                    }
+                    isInWindow = true;
+                    if (hasBefore && count < limit) {
+                        outXs[count] = beforeX;
+                        outYs[count] = beforeY;
+                        count++;
+                    }
+                }
+                if (count == limit) {
+                    return count;
+                }
+                outXs[count] = readX;
+                outYs[count] = readY;
+                count++;
+                if (readX > upperX) { // 窗口右侧的第一个点也要带上
+                    return count;
+                }
+            }
+        }
+        if (!isInWindow && hasBefore && count < limit) { // 所有点都在窗口左侧,带上最后一个点
+            outXs[count] = beforeX;
+            outYs[count] = beforeY;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 获取压缩后占用的字节数(编码数据加块索引)
+     *
+     * @return 字节数
+     */
+    public long getCompressedBytes() {
+        long bytes = 0;
+        for (int block = 0; block < blockCount; block++) {
+            bytes += blocks[block].length + BLOCK_OVERHEAD_BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * 获取压缩率:同样的数据用两个float数组保存(每个点8字节)时的字节数 / 压缩后的字节数.
+     * 用List&lt;PointF&gt;保存时每个点要30多字节,实际节省的内存约为该值的4倍
+     *
+     * @return 压缩率,没有数据时为1
+     */
+    public float getCompressionRatio() {
+        long compressedBytes = getCompressedBytes();
+        return compressedBytes == 0 ? 1 : size * 8f / compressedBytes;
+    }
+
+    /**
+     * 二分查找第一个末尾X坐标大于等于lowerX的块
+     */
+    private int findStartBlock(float lowerX) {
+        int low = 0;
+        int high = blockCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blockLastX[mid] < lowerX) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void startBlock(float x, float y) {
+        if (blockCount > 0) { // 上一块已写满,裁剪到实际长度
+            int last = blockCount - 1;
+            blocks[last] = Arrays.copyOf(blocks[last], (int) ((blockBits[last] + 7) >>> 3));
+        }
+        if (blockCount == blocks.length) {
+            int capacity = blockCount * 2;
+            blocks = Arrays.copyOf(blocks, capacity);
+            blockSizes = Arrays.copyOf(blockSizes, capacity);
+            blockBits = Arrays.copyOf(blockBits, capacity);
+            blockFirstX = Arrays.copyOf(blockFirstX, capacity);
+            blockLastX = Arrays.copyOf(blockLastX, capacity);
+            blockLastY = Arrays.copyOf(blockLastY, capacity);
+        }
+        blocks[blockCount] = new byte[INITIAL_BLOCK_BYTES];
+        blockSizes[blockCount] = 0;
+        blockBits[blockCount] = 0;
+        blockFirstX[blockCount] = x;
+        blockCount++;
+        // 每块第一个点原样保存
+        writeXBits = Float.floatToRawIntBits(x);
+        writeYBits = Float.floatToRawIntBits(y);
+        writeDelta = 0;
+        writeLeading = -1;
+        writeTrailing = 0;
+        writeBits(writeXBits & 0xffffffffL, FLOAT_BITS);
+        writeBits(writeYBits & 0xffffffffL, FLOAT_BITS);
+    }
+
+    /**
+     * X坐标:位模式的二阶差分.0写1位;落在[-63, 64]、[-255, 256]、[-2047, 2048]内分别写2+7、3+9、4+12位;
+     * 更大时写4位标记后原样写入32位位模式
+     */
+    private void encodeX(int xBits) {
+        long delta = (long) xBits - writeXBits;
+        long deltaOfDelta = delta - writeDelta;
+        if (deltaOfDelta == 0) {
+            writeBits(0b0, 1);
+        } else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+            writeBits(0b10, 2);
+            writeBits(deltaOfDelta + 63, 7);
+        } else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+            writeBits(0b110, 3);
+            writeBits(deltaOfDelta + 255, 9);
+        } else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+            writeBits(0b1110, 4);
+            writeBits(deltaOfDelta + 2047, 12);
+        } else {
+            writeBits(0b1111, 4);
+            writeBits(xBits & 0xffffffffL, FLOAT_BITS);
+        }
+        writeXBits = xBits;
+        writeDelta = delta;
+    }
+
+    /**
+     * Y坐标:与上一个点的位模式异或.相同写1位;有效位落在上一次的窗口内时写2位标记和窗口内的位;
+     * 否则写2位标记、5位前导零个数、5位有效位长度减1,再写有效位
+     */
+    private void encodeY(int yBits) {
+        int xor = yBits ^ writeYBits;
+        writeYBits = yBits;
+        if (xor == 0) {
+            writeBits(0b0, 1);
+            return;
+        }
+        int leading = Integer.numberOfLeadingZeros(xor);
+        int trailing = Integer.numberOfTrailingZeros(xor);
+        if (writeLeading >= 0 && leading >= writeLeading && trailing >= writeTrailing) {
+            writeBits(0b10, 2);
+            writeBits((xor >>> writeTrailing) & 0xffffffffL, FLOAT_BITS - writeLeading - writeTrailing);
+            return;
+        }
+        int length = FLOAT_BITS - leading - trailing;
+        writeBits(0b11, 2);
+        writeBits(leading, 5);
+        writeBits(length - 1, 5);
+        writeBits((xor >>> trailing) & 0xffffffffL, length);
+        writeLeading = leading;
+        writeTrailing = trailing;
+    }
+
+    /**
+     * 在当前块末尾写入value的低bitCount位,高位在前
+     */
+    private void writeBits(long value, int bitCount) {
+        int block = blockCount - 1;
+        long position = blockBits[block];
+        int requiredBytes = (int) ((position + bitCount + 7) >>> 3);
+        if (requiredBytes > blocks[block].length) {
+            blocks[block] = Arrays.copyOf(blocks[block], Math.max(requiredBytes, blocks[block].length * 2));
+        }
+        byte[] bytes = blocks[block];
+        while (bitCount > 0) {
+            int byteIndex = (int) (position >>> 3);
+            int free = 8 - (int) (position & 7);
+            int bits = Math.min(free, bitCount);
+            int chunk = (int) (value >>> (bitCount - bits)) & ((1 << bits) - 1);
+            bytes[byteIndex] |= (byte) (chunk << (free - bits));
+            bitCount -= bits;
+            position += bits;
+        }
+        blockBits[block] = position;
+    }
+
+    private void startRead(int block) {
+        readBlock = blocks[block];
+        readPosition = 0;
+    }
+
+    /**
+     * 解码下一个点到readX/readY
+     *
+     * @param isFirst 是否是块内第一个点
+     */
+    private void readNext(boolean isFirst) {
+        if (isFirst) {
+            readXBits = (int) readBits(FLOAT_BITS);
+            readYBits = (int) readBits(FLOAT_BITS);
+            readDelta = 0;
+            readLeading = -1;
+            readTrailing = 0;
+        } else {
+            decodeX();
+            decodeY();
+        }
+        readX = Float.intBitsToFloat(readXBits);
+        readY = Float.intBitsToFloat(readYBits);
+    }
+
+    private void decodeX() {
+        long deltaOfDelta;
+        if (readBits(1) == 0) {
+            deltaOfDelta = 0;
+        } else if (readBits(1) == 0) {
+            deltaOfDelta = readBits(7) - 63;
+        } else if (readBits(1) == 0) {
+            deltaOfDelta = readBits(9) - 255;
+        } else if (readBits(1) == 0) {
+            deltaOfDelta = readBits(12) - 2047;
+        } else { // 原样保存的位模式
+            int xBits = (int) readBits(FLOAT_BITS);
+            readDelta = (long) xBits - readXBits;
+            readXBits = xBits;
+            return;
+        }
+        readDelta += deltaOfDelta;
+        readXBits = (int) (readXBits + readDelta);
+    }
+
+    private void decodeY() {
+        if (readBits(1) == 0) {
+            return;
+        }
+        if (readBits(1) == 0) {
+            int length = FLOAT_BITS - readLeading - readTrailing;
+            readYBits ^= (int) readBits(length) << readTrailing;
+            return;
+        }
+        readLeading = (int) readBits(5);
+        int length = (int) readBits(5) + 1;
+        readTrailing = FLOAT_BITS - readLeading - length;
+        readYBits ^= (int) readBits(length) << readTrailing;
+    }
+
+    /**
+     * 从当前读取位置读出bitCount位,高位在前
+     */
+    private long readBits(int bitCount) {
+        long value = 0;
+        while (bitCount > 0) {
+            int byteIndex = (int) (readPosition >>> 3);
+            int available = 8 - (int) (readPosition & 7);
+            int bits = Math.min(available, bitCount);
+            int chunk = ((readBlock[byteIndex] & 0xff) >>> (available - bits)) & ((1 << bits) - 1);
+            value = (value << bits) | chunk;
+            bitCount -= bits;
+            readPosition += bits;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.myapplication;
+
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.graphics.RenderNode;
+import android.os.Build;
+
+/**
+ * 项目：  My Application
+ * 类名：  DisplayListLayer.java
+ * 时间：  2026/10/18 17:20
+ * 描述：  图表中一层静态内容(坐标轴、某条波形的填充色或线条、某个柱子)的显示列表缓存.
+ * API 29及以上用RenderNode,以下用Picture.内容没有变化时直接回放上次录制的显示列表,不再重新发出绘制指令;
+ * 内容有变化的那一帧直接画到画布上且不录制,连续变化(手势、动画)时不会每帧都多付一次录制的开销,
+ * 等内容稳定后第一次用到时再录制.
+ * 用法:
+ * <pre>
+ *     Canvas target = layer.begin(canvas, isDirty, width, height);
+ *     if (target != null) {
+ *         // 把这一层的内容画到target上
+ *     }
+ *     layer.end(canvas);
+ * </pre>
+ */
+class DisplayListLayer {
+    private static final int STATE_IDLE = 0;
+    /**
+     * 本次直接画到画布上
+     */
+    private static final int STATE_DIRECT = 1;
+    /**
+     * 本次录制后回放
+     */
+    private static final int STATE_RECORD = 2;
+    /**
+     * 本次直接回放
+     */
+    private static final int STATE_REPLAY = 3;
+
+    private final String name;
+    private RenderNode renderNode;
+    private Picture picture;
+    /**
+     * 显示列表中的内容是否可以回放
+     */
+    private boolean isValid;
+    /**
+     * 录制时的画布尺寸
+     */
+    private int width;
+    private int height;
+    private int state = STATE_IDLE;
+
+    /**
+     * @param name 名称,用于调试工具中区分RenderNode
+     */
+    DisplayListLayer(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 开始画这一层
+     *
+     * @param canvas 目标画布
+     * @param isDirty 这一层的内容从上次画完到现在是否有变化
+     * @param width 录制区域宽度(与目标画布同一个坐标系,从0开始)
+     * @param height 录制区域高度
+     * @return 要画内容的画布:直接绘制时是canvas本身,需要录制时是录制用的画布;null表示直接回放,不需要画内容
+     */
+    Canvas begin(Canvas canvas, boolean isDirty, int width, int height) {
+        if (isDirty) {
+            isValid = false;
+        }
+        if (isDirty || width <= 0 || height <= 0 || !canReplay(canvas)) {
+            state = STATE_DIRECT;
+            return canvas;
+        }
+        if (isValid && this.width == width && this.height == height) {
+            state = STATE_REPLAY;
+            return null;
+        }
+        state = STATE_RECORD;
+        this.width = width;
+        this.height = height;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            if (renderNode == null) {
+                renderNode = new RenderNode(name);
+            }
+            renderNode.setPosition(0, 0, width, height);
+            return renderNode.beginRecording(width, height);
+        }
+        if (picture == null) {
+            picture = new Picture();
+        }
+        return picture.beginRecording(width, height);
+    }
+
+    /**
+     * 结束画这一层.需要时结束录制,并把显示列表回放到画布上
+     *
+     * @param canvas 目标画布,与begin()的一致
+     */
+    void end(Canvas canvas) {
+        if (state == STATE_RECORD) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                renderNode.endRecording();
+            } else {
+                picture.endRecording();
+            }
+            isValid = true;
+        }
+        if (state == STATE_RECORD || state == STATE_REPLAY) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                canvas.drawRenderNode(renderNode);
+            } else {
+                canvas.drawPicture(picture);
+            }
+        }
+        state = STATE_IDLE;
+    }
+
+    /**
+     * RenderNode只能画到硬件加速的画布上(画到位图等软件画布时直接绘制);
+     * API 23以下硬件加速的画布不支持drawPicture()
+     *
+     * @param canvas 目标画布
+     * @return true可以回放显示列表
+     */
+    static boolean canReplay(Canvas canvas) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return canvas.isHardwareAccelerated();
+        }
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.M || !canvas.isHardwareAccelerated();
+    }
+
+    boolean isValid() {
+        return isValid;
+    }
+
+    /**
+     * 丢弃显示列表,下次用到时重新录制
+     */
+    void invalidate() {
+        isValid = false;
+    }
+
+    /**
+     * 释放显示列表占用的资源
+     */
+    void release() {
+        isValid = false;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && renderNode != null) {
+            renderNode.discardDisplayList();
+        }
+        renderNode = null;
+        picture = null;
+    }
+}
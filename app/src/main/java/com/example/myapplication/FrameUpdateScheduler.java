@@ -0,0 +1,69 @@
+package com.example.myapplication;
+
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * 项目：  My Application
+ * 类名：  FrameUpdateScheduler.java
+ * 时间：  2026/10/18 18:20
+ * 描述：  把一帧之内的多次更新请求合并成一次,在下一个Choreographer帧回调中执行.
+ * 数据源高频调用多个setter时(例如每个采样点都设置数据和X/Y轴范围),中间状态只记录下来,不逐次刷新界面;
+ * 帧回调在同一帧的布局绘制之前执行,不会多延迟一帧.
+ * 只能在有Looper的线程中合并,没有Looper的线程直接执行.
+ */
+class FrameUpdateScheduler implements Choreographer.FrameCallback {
+    private final Runnable update;
+    /**
+     * 是否已经提交了帧回调,还没有执行
+     */
+    private boolean isScheduled;
+
+    /**
+     * @param update 合并后每帧最多执行一次的更新
+     */
+    FrameUpdateScheduler(Runnable update) {
+        this.update = update;
+    }
+
+    /**
+     * 请求在下一帧执行更新.同一帧内多次请求只执行一次
+     */
+    void schedule() {
+        if (isScheduled) {
+            return;
+        }
+        if (Looper.myLooper() == null) { // 没有Looper的线程拿不到Choreographer
+            update.run();
+            return;
+        }
+        isScheduled = true;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * 有尚未执行的更新时立即执行,例如绘制前需要拿到最新状态
+     */
+    void flush() {
+        if (isScheduled) {
+            cancel();
+            update.run();
+        }
+    }
+
+    /**
+     * 取消尚未执行的更新
+     */
+    void cancel() {
+        if (isScheduled) {
+            isScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        isScheduled = false;
+        update.run();
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+
+/**
+ * 项目：  My Application
+ * 类名：  LttbDownsampler.java
+ * 时间：  2026/10/18 11:05
+ * 描述：  Largest-Triangle-Three-Buckets降采样.桶按原始数据的绝对序号对齐(第k个桶是[k * bucketSize, (k + 1) * bucketSize)),
+ * 每个桶选出一个与前一个选中点、下一个桶平均点构成三角形面积最大的点.
+ * 由于桶的位置与数据长度无关,追加数据时只需要重算末尾还不稳定的几个桶,不会把整个历史数据重新降采样一遍;
+ * 环形缓冲区移除最早的数据时,也只是丢弃开头的桶.
+ */
+public class LttbDownsampler {
+    /**
+     * 每个桶包含的原始数据点个数
+     */
+    private int bucketSize;
+
+    /**
+     * 每个桶选中的原始数据点绝对序号,第k个桶保存在selected[k - storageBase]
+     */
+    private int[] selected = new int[16];
+
+    /**
+     * selected[0]对应的桶序号
+     */
+    private int storageBase;
+
+    /**
+     * 第一个还有数据的桶序号
+     */
+    private int firstBucket;
+
+    /**
+     * 已经计算过的桶的结束序号(不包含)
+     */
+    private int selectedEnd;
+
+    /**
+     * 结果已经稳定(后续追加数据不会再改变)的桶的结束序号(不包含)
+     */
+    private int stableEnd;
+
+    /**
+     * 计算时原始数据的绝对结束序号(不包含)
+     */
+    private int builtEnd;
+
+    /**
+     * 计算时原始数据的重置版本号
+     */
+    private int builtResetVersion = -1;
+
+    /**
+     * 计算到第toBucket个桶为止选中的数据点.原始数据只是追加(包括环形缓冲区移除最早数据)时增量计算,否则全部重算
+     *
+     * @param series 原始数据,X坐标需要有序
+     * @param bucketSize 每个桶包含的原始数据点个数
+     * @param toBucket 需要计算到的桶序号(包含),按绝对序号计算
+     */
+    public void update(WaveSeries series, int bucketSize, int toBucket) {
+        int absStart = series.getEvictedCount();
+        int absEnd = absStart + series.size();
+        if (bucketSize != this.bucketSize || series.getResetVersion() != builtResetVersion || absEnd < builtEnd) {
+            this.bucketSize = bucketSize;
+            builtResetVersion = series.getResetVersion();
+            storageBase = absStart / bucketSize;
+            firstBucket = storageBase;
+            selectedEnd = storageBase;
+            stableEnd = storageBase;
+            builtEnd = absStart;
+        }
+        if (absEnd == absStart) {
+            return;
+        }
+        dropEvicted(series, absStart);
+
+        int lastBucket = Math.min(toBucket, (absEnd - 1) / bucketSize);
+        if (absEnd == builtEnd && lastBucket < selectedEnd) {
+            return;
+        }
+        int from = Math.max(firstBucket, absEnd == builtEnd ? selectedEnd : Math.min(stableEnd, selectedEnd));
+        ensureStorage(lastBucket);
+        for (int k = from; k <= lastBucket; k++) {
+            selected[k - storageBase] = selectInBucket(series, k);
+        }
+        selectedEnd = Math.max(from, lastBucket + 1);
+        // 第k个桶的结果依赖第k - 1个桶的结果和第k + 1个桶的平均点,只有第k + 1个桶已经填满时才不会再变化
+        stableEnd = Math.min(selectedEnd, Math.max(firstBucket, absEnd / bucketSize - 1));
+        builtEnd = absEnd;
+    }
+
+    /**
+     * 获取某个桶选中的原始数据点绝对序号
+     *
+     * @param bucket 桶序号,需要在update()计算的范围内
+     * @return 原始数据点绝对序号,减去WaveSeries.getEvictedCount()即为数据点序号
+     */
+    public int getSelected(int bucket) {
+        return selected[bucket - storageBase];
+    }
+
+    public int getBucketSize() {
+        return bucketSize;
+    }
+
+    /**
+     * 丢弃数据已经全部被环形缓冲区移除的桶
+     *
+     * @param series 原始数据
+     * @param absStart 第一个数据点的绝对序号
+     */
+    private void dropEvicted(WaveSeries series, int absStart) {
+        int newFirstBucket = absStart / bucketSize;
+        if (newFirstBucket > firstBucket) {
+            firstBucket = newFirstBucket;
+            selectedEnd = Math.max(selectedEnd, firstBucket);
+            stableEnd = Math.max(stableEnd, firstBucket);
+        }
+        // 第一个桶中选中的点可能已经被移除,改为选择第一个还存在的点
+        if (selectedEnd > firstBucket && selected[firstBucket - storageBase] < absStart) {
+            selected[firstBucket - storageBase] = selectInBucket(series, firstBucket);
+        }
+    }
+
+    private void ensureStorage(int lastBucket) {
+        int live = selectedEnd - firstBucket;
+        if (firstBucket - storageBase > selected.length / 2) { // 开头空闲过多时整体前移,避免数组无限增长
+            System.arraycopy(selected, firstBucket - storageBase, selected, 0, Math.max(0, live));
+            storageBase = firstBucket;
+        }
+        int required = lastBucket - storageBase + 1;
+        if (selected.length < required) {
+            selected = Arrays.copyOf(selected, Math.max(required, selected.length * 2));
+        }
+    }
+
+    private int selectInBucket(WaveSeries series, int bucket) {
+        int absStart = series.getEvictedCount();
+        int absEnd = absStart + series.size();
+        int start = Math.max(absStart, bucket * bucketSize);
+        if (bucket == firstBucket) {
+            return start; // 第一个点总是保留
+        }
+        int end = Math.min(absEnd, bucket * bucketSize + bucketSize);
+
+        // 前一个桶选中的点
+        int anchor = selected[bucket - 1 - storageBase] - absStart;
+        float anchorX = series.getX(anchor);
+        float anchorY = series.getY(anchor);
+
+        // 下一个桶的平均点,没有下一个桶时使用最后一个点
+        float nextX;
+        float nextY;
+        int nextStart = end;
+        int nextEnd = Math.min(absEnd, nextStart + bucketSize);
+        if (nextStart >= nextEnd) {
+            nextX = series.getX(absEnd - 1 - absStart);
+            nextY = series.getY(absEnd - 1 - absStart);
+        } else {
+            float sumX = 0;
+            float sumY = 0;
+            for (int i = nextStart - absStart; i < nextEnd - absStart; i++) {
+                sumX += series.getX(i);
+                sumY += series.getY(i);
+            }
+            nextX = sumX / (nextEnd - nextStart);
+            nextY = sumY / (nextEnd - nextStart);
+        }
+
+        int result = start;
+        float maxArea = -1;
+        for (int i = start - absStart; i < end - absStart; i++) {
+            // 三角形面积的两倍,只比较大小不需要除以2
+            float area = Math.abs((anchorX - nextX) * (series.getY(i) - anchorY)
+                    - (anchorX - series.getX(i)) * (nextY - anchorY));
+            if (area > maxArea) {
+                maxArea = area;
+                result = i + absStart;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.myapplication;
+
+import android.animation.TimeAnimator;
+
+import java.util.Arrays;
+
+/**
+ * 项目：  My Application
+ * 类名：  ProgressSpringClock.java
+ * 时间：  2026/10/18 20:10
+ * 描述：  同一个View内所有进度条共用的动画时钟.一个TimeAnimator每帧推进全部正在运动的进度,
+ * 当前值、速度和目标值保存在按序号排列的基本类型数组中.运动按临界阻尼弹簧计算,
+ * 运动途中修改目标值时保留当前速度平滑转向,不会像重新创建ValueAnimator那样速度归零;每帧不分配对象.
+ */
+class ProgressSpringClock implements TimeAnimator.TimeListener {
+    /**
+     * 临界阻尼弹簧从静止出发剩余1%位移时ω*t的值:(1 + ωt) * e^(-ωt) = 0.01
+     */
+    private static final float SETTLE_OMEGA_TIME = 6.64f;
+    /**
+     * 位移和速度(每秒)都小于该值时认为已经停止
+     */
+    private static final float SETTLE_EPSILON = 1e-4f;
+    /**
+     * 单帧最长推进时间,单位毫秒.卡顿或从后台回来时不会一步跳过整段动画
+     */
+    private static final long MAX_FRAME_DELTA = 50L;
+
+    /**
+     * 每帧推进之后的回调
+     */
+    interface Listener {
+        void onProgressFrame();
+    }
+
+    private final TimeAnimator animator = new TimeAnimator();
+    private final Listener listener;
+    /**
+     * 按序号保存的当前值、速度(每秒)和目标值.当前值为NaN表示还没有设置过,第一次设置时直接到达目标值
+     */
+    private float[] positions = new float[0];
+    private float[] velocities = new float[0];
+    private float[] targets = new float[0];
+    /**
+     * 正在运动的序号,只推进这些序号
+     */
+    private int[] activeIndexes = new int[0];
+    private boolean[] isActive = new boolean[0];
+    private int activeCount;
+    private int size;
+    /**
+     * 弹簧固有角频率,由动画时长换算;0表示没有动画
+     */
+    private float omega;
+
+    /**
+     * @param listener 每帧推进之后的回调
+     */
+    ProgressSpringClock(Listener listener) {
+        this.listener = listener;
+        animator.setTimeListener(this);
+    }
+
+    /**
+     * 设置动画时长,换算成弹簧刚度:从静止出发大约在该时长内走完99%的距离
+     *
+     * @param duration 动画时长,单位毫秒.<=0时没有动画,直接到达目标值
+     */
+    void setDuration(long duration) {
+        omega = duration > 0 ? SETTLE_OMEGA_TIME * 1000f / duration : 0;
+    }
+
+    /**
+     * 设置序号个数.保留已有序号的运动状态,新增的序号第一次设置目标值时直接到达
+     *
+     * @param size 序号个数
+     */
+    void setSize(int size) {
+        if (size > positions.length) {
+            int capacity = Math.max(size, positions.length * 2);
+            positions = Arrays.copyOf(positions, capacity);
+            velocities = Arrays.copyOf(velocities, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            activeIndexes = Arrays.copyOf(activeIndexes, capacity);
+            isActive = Arrays.copyOf(isActive, capacity);
+        }
+        for (int i = this.size; i < size; i++) {
+            positions[i] = Float.NaN;
+            velocities[i] = 0;
+            isActive[i] = false;
+        }
+        for (int i = activeCount - 1; i >= 0; i--) { // 移除超出范围的序号
+            if (activeIndexes[i] >= size) {
+                isActive[activeIndexes[i]] = false;
+                activeIndexes[i] = activeIndexes[--activeCount];
+            }
+        }
+        this.size = size;
+    }
+
+    /**
+     * 设置目标值.正在运动时保留当前速度转向新的目标值
+     *
+     * @param index 序号
+     * @param target 目标值
+     */
+    void setTarget(int index, float target) {
+        if (index < 0 || index >= size) {
+            return;
+        }
+        if (Float.isNaN(positions[index]) || omega <= 0) {
+            jumpTo(index, target);
+            return;
+        }
+        targets[index] = target;
+        if (!isActive[index] && positions[index] != target) {
+            isActive[index] = true;
+            activeIndexes[activeCount++] = index;
+            if (!animator.isStarted()) {
+                animator.start();
+            }
+        }
+    }
+
+    /**
+     * 直接到达指定值,没有动画
+     *
+     * @param index 序号
+     * @param value 值
+     */
+    void jumpTo(int index, float value) {
+        if (index < 0 || index >= size) {
+            return;
+        }
+        positions[index] = value;
+        targets[index] = value;
+        velocities[index] = 0; // 如果还在运动序号中,下一帧位移和速度都为0,自然移除
+    }
+
+    /**
+     * @param index 序号
+     * @return 当前值;没有设置过时返回0
+     */
+    float getPosition(int index) {
+        if (index < 0 || index >= size || Float.isNaN(positions[index])) {
+            return 0;
+        }
+        return positions[index];
+    }
+
+    /**
+     * 停止动画,所有序号直接到达目标值
+     */
+    void cancel() {
+        animator.cancel();
+        for (int i = 0; i < activeCount; i++) {
+            int index = activeIndexes[i];
+            positions[index] = targets[index];
+            velocities[index] = 0;
+            isActive[index] = false;
+        }
+        activeCount = 0;
+    }
+
+    @Override
+    public void onTimeUpdate(TimeAnimator animation, long totalTime, long deltaTime) {
+        float dt = Math.min(deltaTime, MAX_FRAME_DELTA) / 1000f;
+        float decay = (float) Math.exp(-omega * dt);
+        // 临界阻尼解析解:x(t) = (x0 + (v0 + ωx0)t)e^(-ωt),v(t) = (v0 - ω(v0 + ωx0)t)e^(-ωt),任意步长都稳定
+        for (int i = activeCount - 1; i >= 0; i--) { // 倒序遍历,移除时把末尾的序号换到当前位置
+            int index = activeIndexes[i];
+            float offset = positions[index] - targets[index];
+            float velocity = velocities[index];
+            float c = velocity + omega * offset;
+            offset = (offset + c * dt) * decay;
+            velocity = (velocity - omega * c * dt) * decay;
+            if (Math.abs(offset) < SETTLE_EPSILON && Math.abs(velocity) < SETTLE_EPSILON) {
+                positions[index] = targets[index];
+                velocities[index] = 0;
+                isActive[index] = false;
+                activeIndexes[i] = activeIndexes[--activeCount];
+            } else {
+                positions[index] = targets[index] + offset;
+                velocities[index] = velocity;
+            }
+        }
+        listener.onProgressFrame();
+        if (activeCount == 0) {
+            animator.end();
+        }
+    }
+}
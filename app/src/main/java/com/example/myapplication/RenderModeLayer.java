@@ -0,0 +1,97 @@
+package com.example.myapplication;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import static com.example.myapplication.SmoothWaveDrawable.MASK_HEX_2;
+import static com.example.myapplication.SmoothWaveDrawable.RENDER_MODE_AUTO;
+import static com.example.myapplication.SmoothWaveDrawable.RENDER_MODE_LAYER;
+
+/**
+ * 项目：  My Application
+ * 类名：  RenderModeLayer.java
+ * 时间：  2026/10/18 21:40
+ * 描述：  波形和坐标轴drawable共用的绘制方式判断和画布保存.保存整体透明度、颜色滤镜和绘制方式,
+ * RENDER_MODE_AUTO时只有需要整体透明度或颜色滤镜才分配离屏图层,其余情况直接绘制到目标画布上.
+ * 各drawable只通过这里判断,保证规则一致
+ */
+class RenderModeLayer {
+    /**
+     * 离屏图层合成到目标画布时使用的画笔,携带整体透明度和颜色滤镜
+     */
+    private final Paint layerPaint = new Paint();
+    private final RectF boundRectF = new RectF();
+    @SmoothWaveDrawable.RenderMode
+    private int renderMode = RENDER_MODE_AUTO;
+
+    /**
+     * 是否需要先绘制到离屏图层再整体合成
+     *
+     * @return true需要离屏图层
+     */
+    boolean isLayerNeeded() {
+        return renderMode == RENDER_MODE_LAYER || (renderMode == RENDER_MODE_AUTO
+                && (layerPaint.getAlpha() != MASK_HEX_2 || layerPaint.getColorFilter() != null));
+    }
+
+    /**
+     * 保存画布状态并把绘制范围限制在边界内.需要离屏图层时分配,否则只做save/clipRect,
+     * 省掉一次离屏缓冲区的分配和合成
+     *
+     * @param canvas 画布
+     * @param bounds drawable的边界
+     * @return 用于restoreToCount()的保存序号
+     */
+    int save(Canvas canvas, Rect bounds) {
+        if (isLayerNeeded()) {
+            boundRectF.set(bounds);
+            return canvas.saveLayer(boundRectF, layerPaint);
+        }
+        int saveCount = canvas.save();
+        canvas.clipRect(bounds);
+        return saveCount;
+    }
+
+    /**
+     * @param alpha 整体透明度
+     * @return true有变化
+     */
+    boolean setAlpha(int alpha) {
+        if (layerPaint.getAlpha() == alpha) {
+            return false;
+        }
+        layerPaint.setAlpha(alpha);
+        return true;
+    }
+
+    int getAlpha() {
+        return layerPaint.getAlpha();
+    }
+
+    /**
+     * @param colorFilter 颜色滤镜
+     * @return true有变化
+     */
+    boolean setColorFilter(ColorFilter colorFilter) {
+        if (layerPaint.getColorFilter() == colorFilter) {
+            return false;
+        }
+        layerPaint.setColorFilter(colorFilter);
+        return true;
+    }
+
+    /**
+     * @param renderMode 绘制方式
+     * @return true有变化
+     */
+    boolean setRenderMode(@SmoothWaveDrawable.RenderMode int renderMode) {
+        if (this.renderMode == renderMode) {
+            return false;
+        }
+        this.renderMode = renderMode;
+        return true;
+    }
+}
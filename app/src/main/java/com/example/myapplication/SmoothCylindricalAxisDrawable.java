@@ -155,35 +155,49 @@ public class SmoothCylindricalAxisDrawable extends Drawable {
     }
 
     private void drawIcons(Canvas canvas) {
-        if (iconData == null || iconData.isEmpty() || iconSize <= 0) {
+        if (iconData == null || iconData.isEmpty()) {
             return;
         }
-        float ultraIconSize = Math.min(iconSize, iconRectSize * 0.8f);
         for (Pair<Float, Drawable> icon : iconData) {
-            float iconCenterX;
-            float iconCenterY;
-            if (align == Gravity.BOTTOM || align == Gravity.TOP) {
-                iconCenterX = visibleRect.left + visibleRect.width() * icon.first;
-                if (align == Gravity.BOTTOM) {
-                    iconCenterY = visibleRect.bottom + iconRectSize / 2;
-                } else {
-                    iconCenterY = visibleRect.top - iconRectSize / 2;
-                }
+            drawIcon(canvas, icon.second, icon.first);
+        }
+    }
+
+    /**
+     * 在图标轴上画一个图标
+     *
+     * @param canvas 画布
+     * @param icon 图标,为null时不画,只留出位置
+     * @param position 图标在轴上的位置百分比
+     */
+    void drawIcon(Canvas canvas, Drawable icon, float position) {
+        if (icon == null || iconSize <= 0) {
+            return;
+        }
+        float ultraIconSize = Math.min(iconSize, iconRectSize * 0.8f);
+        float iconCenterX;
+        float iconCenterY;
+        if (align == Gravity.BOTTOM || align == Gravity.TOP) {
+            iconCenterX = visibleRect.left + visibleRect.width() * position;
+            if (align == Gravity.BOTTOM) {
+                iconCenterY = visibleRect.bottom + iconRectSize / 2;
             } else {
-                iconCenterY = visibleRect.top + visibleRect.height() * icon.first;
-                if (align == Gravity.LEFT) {
-                    iconCenterX = visibleRect.left - iconRectSize / 2;
-                } else {
-                    iconCenterX = visibleRect.right + iconRectSize / 2;
-                }
+                iconCenterY = visibleRect.top - iconRectSize / 2;
+            }
+        } else {
+            iconCenterY = visibleRect.top + visibleRect.height() * position;
+            if (align == Gravity.LEFT) {
+                iconCenterX = visibleRect.left - iconRectSize / 2;
+            } else {
+                iconCenterX = visibleRect.right + iconRectSize / 2;
             }
-            int left = (int) (iconCenterX - ultraIconSize / 2 + 0.5f);
-            int right = (int) (left + ultraIconSize);
-            int top = (int) (iconCenterY - ultraIconSize / 2 + 0.5f);
-            int bottom = (int) (top + ultraIconSize);
-            icon.second.setBounds(left, top, right, bottom);
-            icon.second.draw(canvas);
         }
+        int left = (int) (iconCenterX - ultraIconSize / 2 + 0.5f);
+        int right = (int) (left + ultraIconSize);
+        int top = (int) (iconCenterY - ultraIconSize / 2 + 0.5f);
+        int bottom = (int) (top + ultraIconSize);
+        icon.setBounds(left, top, right, bottom);
+        icon.draw(canvas);
     }
 
     /**
@@ -207,6 +221,25 @@ public class SmoothCylindricalAxisDrawable extends Drawable {
         iconData = data == null ? Collections.emptyList() : new ArrayList<>(data);
     }
 
+    /**
+     * 只替换某个位置上的图标,位置不变
+     *
+     * @param index 图标序号,与setIconData()中的顺序一致
+     * @param icon 新的图标
+     * @return true图标有变化,需要重新绘制
+     */
+    public boolean setIcon(int index, Drawable icon) {
+        if (iconData == null || index < 0 || index >= iconData.size()) {
+            return false;
+        }
+        Pair<Float, Drawable> old = iconData.get(index);
+        if (old.second == icon) {
+            return false;
+        }
+        iconData.set(index, new Pair<>(old.first, icon));
+        return true;
+    }
+
     /**
      * 设置图标尺寸
      *
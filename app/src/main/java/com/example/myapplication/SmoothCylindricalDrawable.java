@@ -25,6 +25,8 @@ import androidx.annotation.IntDef;
 import static com.example.myapplication.SmoothWaveDrawable.BIN_LENGTH_24;
 import static com.example.myapplication.SmoothWaveDrawable.MASK_HEX_2;
 import static com.example.myapplication.SmoothWaveDrawable.MASK_HEX_6;
+import static com.example.myapplication.SmoothWaveDrawable.RENDER_MODE_AUTO;
+import static com.example.myapplication.SmoothWaveDrawable.RENDER_MODE_LAYER;
 import static java.lang.annotation.RetentionPolicy.SOURCE;
 
 /**
@@ -60,6 +62,10 @@ public class SmoothCylindricalDrawable extends Drawable {
     private final Paint paint = new Paint();
 
     private final Path path = new Path();
+    /**
+     * 进度条底座形状(直角或圆润),直接绘制时与进度条头部形状求交
+     */
+    private final Path basePath = new Path();
 
     private final RectF visibleRect = new RectF();
 
@@ -87,6 +93,13 @@ public class SmoothCylindricalDrawable extends Drawable {
 
     private float alpha = 1.0f;
 
+    /**
+     * 绘制方式.RENDER_MODE_LAYER时每个进度条分配一次离屏图层并用CLEAR擦掉底座以外的部分,
+     * 其余情况直接画出头部与底座相交后的形状
+     */
+    @SmoothWaveDrawable.RenderMode
+    private int renderMode = RENDER_MODE_AUTO;
+
     /**
      * 进度条依附的方向可选值
      *
@@ -199,6 +212,32 @@ public class SmoothCylindricalDrawable extends Drawable {
         }
     }
 
+    /**
+     * 只修改显示的进度,不修改目标进度也不刷新,由外部的动画时钟驱动时使用
+     *
+     * @param showPercent 显示的进度百分比
+     * @return true显示的进度有变化
+     */
+    boolean setShowPercent(float showPercent) {
+        if (this.showPercent == showPercent) {
+            return false;
+        }
+        this.showPercent = showPercent;
+        return true;
+    }
+
+    /**
+     * 放回复用池之前调用:停止进度动画并断开回调,重新绑定数据时不会被旧动画覆盖
+     */
+    void recycle() {
+        if (valueAnimator != null) {
+            valueAnimator.removeAllUpdateListeners();
+            valueAnimator.cancel();
+            valueAnimator = null;
+        }
+        setCallback(null);
+    }
+
     /**
      * 设置进度条所在区域
      *
@@ -226,7 +265,7 @@ public class SmoothCylindricalDrawable extends Drawable {
     }
 
     /**
-     * 绘制静态进度条关键方法.进度条由两层绘制setXfermode交叉得出
+     * 绘制静态进度条关键方法.进度条头部形状与底座形状相交得出,RENDER_MODE_LAYER时由两层绘制setXfermode交叉得出
      *
      * @param canvas 画布
      * @param percent 进度条要占其View长(或宽,取决于进度条Gravity方向)的百分比.(0.0f-1.0f)
@@ -251,14 +290,13 @@ public class SmoothCylindricalDrawable extends Drawable {
     }
 
     /**
-     * 画依附于上部的进度条,第一层;进度条由两层绘制setXfermode交叉得出
+     * 画依附于上部的进度条.进度条头部形状与底座形状相交得出
      *
      * @param canvas 画布
      * @param percent 百分比
      */
     private void drawProgressAlignTop(Canvas canvas, float percent) {
-        Rect rect = getBounds();
-        int layoutId = canvas.saveLayer(rect.left, rect.top, rect.right, rect.bottom, paint, Canvas.ALL_SAVE_FLAG);
+        int layoutId = saveProgressLayer(canvas);
 
         float progressLength = visibleRect.height();
         float progressWidth = visibleRect.width();
@@ -274,9 +312,7 @@ public class SmoothCylindricalDrawable extends Drawable {
         path.close();
 
         paint.setColor(getFillColor());
-        canvas.drawPath(path, paint);
-
-        clearSurplus(canvas);
+        drawProgressPath(canvas);
 
         float textSize = progressWidth * TEXT_SIZE_PERCENT;
         paint.setTextSize(textSize);
@@ -290,14 +326,13 @@ public class SmoothCylindricalDrawable extends Drawable {
     }
 
     /**
-     * 画依附于底部的进度条,第一层;进度条由两层绘制setXfermode交叉得出
+     * 画依附于底部的进度条.进度条头部形状与底座形状相交得出
      *
      * @param canvas 画布
      * @param percent 百分比
      */
     private void drawProgressAlignBottom(Canvas canvas, float percent) {
-        Rect rect = getBounds();
-        int layoutId = canvas.saveLayer(rect.left, rect.top, rect.right, rect.bottom, paint, Canvas.ALL_SAVE_FLAG);
+        int layoutId = saveProgressLayer(canvas);
 
         float progressLength = visibleRect.height();
         float progressWidth = visibleRect.width();
@@ -313,9 +348,7 @@ public class SmoothCylindricalDrawable extends Drawable {
         path.close();
 
         paint.setColor(getFillColor());
-        canvas.drawPath(path, paint);
-
-        clearSurplus(canvas);
+        drawProgressPath(canvas);
 
         float textSize = progressWidth * TEXT_SIZE_PERCENT;
         paint.setTextSize(textSize);
@@ -329,14 +362,13 @@ public class SmoothCylindricalDrawable extends Drawable {
     }
 
     /**
-     * 画依附于左边的进度条,第一层;进度条由两层绘制setXfermode交叉得出
+     * 画依附于左边的进度条.进度条头部形状与底座形状相交得出
      *
      * @param canvas 画布
      * @param percent 百分比
      */
     private void drawProgressAlignLeft(Canvas canvas, float percent) {
-        Rect rect = getBounds();
-        int layoutId = canvas.saveLayer(rect.left, rect.top, rect.right, rect.bottom, paint, Canvas.ALL_SAVE_FLAG);
+        int layoutId = saveProgressLayer(canvas);
 
         float progressWidth = visibleRect.height();
         float progressLength = visibleRect.width();
@@ -352,9 +384,7 @@ public class SmoothCylindricalDrawable extends Drawable {
         path.close();
 
         paint.setColor(getFillColor());
-        canvas.drawPath(path, paint);
-
-        clearSurplus(canvas);
+        drawProgressPath(canvas);
 
         float textSize = progressWidth * TEXT_SIZE_PERCENT;
         paint.setTextSize(textSize);
@@ -369,14 +399,13 @@ public class SmoothCylindricalDrawable extends Drawable {
 
 
     /**
-     * 画依附于右边的进度条,第一层;进度条由两层绘制setXfermode交叉得出
+     * 画依附于右边的进度条.进度条头部形状与底座形状相交得出
      *
      * @param canvas 画布
      * @param percent 百分比
      */
     private void drawProgressAlignRight(Canvas canvas, float percent) {
-        Rect rect = getBounds();
-        int layoutId = canvas.saveLayer(rect.left, rect.top, rect.right, rect.bottom, paint, Canvas.ALL_SAVE_FLAG);
+        int layoutId = saveProgressLayer(canvas);
 
         float progressWidth = visibleRect.height();
         float progressLength = visibleRect.width();
@@ -392,9 +421,7 @@ public class SmoothCylindricalDrawable extends Drawable {
         path.close();
 
         paint.setColor(getFillColor());
-        canvas.drawPath(path, paint);
-
-        clearSurplus(canvas);
+        drawProgressPath(canvas);
 
         float textSize = progressWidth * TEXT_SIZE_PERCENT;
         paint.setTextSize(textSize);
@@ -407,6 +434,86 @@ public class SmoothCylindricalDrawable extends Drawable {
         canvas.restoreToCount(layoutId);
     }
 
+    /**
+     * 保存画布状态.只有RENDER_MODE_LAYER时才分配离屏图层
+     *
+     * @param canvas 画布
+     * @return 用于restoreToCount()的保存序号
+     */
+    private int saveProgressLayer(Canvas canvas) {
+        if (renderMode != RENDER_MODE_LAYER) {
+            return canvas.save();
+        }
+        Rect rect = getBounds();
+        return canvas.saveLayer(rect.left, rect.top, rect.right, rect.bottom, paint, Canvas.ALL_SAVE_FLAG);
+    }
+
+    /**
+     * 画出path中的进度条头部形状,并去掉超出底座的部分
+     *
+     * @param canvas 画布
+     */
+    private void drawProgressPath(Canvas canvas) {
+        if (renderMode == RENDER_MODE_LAYER) {
+            canvas.drawPath(path, paint);
+            clearSurplus(canvas);
+            return;
+        }
+        buildBasePath();
+        if (path.op(basePath, Path.Op.INTERSECT)) {
+            canvas.drawPath(path, paint);
+        }
+    }
+
+    /**
+     * 构建底座形状.圆润底座的半圆与clearSurplus()中擦除时使用的半圆是同一段弧线,两种绘制方式的结果一致
+     */
+    @SuppressLint("RtlHardcoded")
+    private void buildBasePath() {
+        basePath.reset();
+        if (!isProgressBottomCircle()) {
+            basePath.addRect(visibleRect, Path.Direction.CW);
+            return;
+        }
+        float radius;
+        switch (align) {
+            case Gravity.LEFT:
+                radius = visibleRect.height() / 2f;
+                basePath.moveTo(visibleRect.right, visibleRect.top); // 初始化到右上角
+                basePath.lineTo(visibleRect.left + radius, visibleRect.top); // 连线到半圆顶端
+                basePath.arcTo(visibleRect.left, visibleRect.top, visibleRect.left + 2 * radius, visibleRect.bottom,
+                        -90, -180, false); // 逆时针画半圆到半圆底端
+                basePath.lineTo(visibleRect.right, visibleRect.bottom); // 连线到右下角
+                break;
+            case Gravity.RIGHT:
+                radius = visibleRect.height() / 2f;
+                basePath.moveTo(visibleRect.left, visibleRect.top); // 初始化到左上角
+                basePath.lineTo(visibleRect.right - radius, visibleRect.top); // 连线到半圆顶端
+                basePath.arcTo(visibleRect.right - 2 * radius, visibleRect.top, visibleRect.right,
+                        visibleRect.bottom, -90, 180, false); // 顺时针画半圆到半圆底端
+                basePath.lineTo(visibleRect.left, visibleRect.bottom); // 连线到左下角
+                break;
+            case Gravity.TOP:
+                radius = visibleRect.width() / 2f;
+                basePath.moveTo(visibleRect.left, visibleRect.bottom); // 初始化到左下角
+                basePath.lineTo(visibleRect.left, visibleRect.top + radius); // 连线到半圆左端
+                basePath.arcTo(visibleRect.left, visibleRect.top, visibleRect.right, visibleRect.top + 2 * radius,
+                        180, 180, false); // 顺时针画半圆到半圆右端
+                basePath.lineTo(visibleRect.right, visibleRect.bottom); // 连线到右下角
+                break;
+            case Gravity.BOTTOM:
+            default:
+                radius = visibleRect.width() / 2f;
+                basePath.moveTo(visibleRect.left, visibleRect.top); // 初始化到左上角
+                basePath.lineTo(visibleRect.left, visibleRect.bottom - radius); // 连线到半圆左端
+                basePath.arcTo(visibleRect.left, visibleRect.bottom - 2 * radius, visibleRect.right,
+                        visibleRect.bottom, 180, -180, false); // 逆时针画半圆到半圆右端
+                basePath.lineTo(visibleRect.right, visibleRect.top); // 连线到右上角
+                break;
+        }
+        basePath.close();
+    }
+
     @SuppressLint("RtlHardcoded")
     private void clearSurplus(Canvas canvas) {
         paint.setXfermode(porterDuffXfermode);
@@ -551,6 +658,19 @@ public class SmoothCylindricalDrawable extends Drawable {
         }
     }
 
+    /**
+     * 设置绘制方式.默认RENDER_MODE_AUTO,与RENDER_MODE_DIRECT相同,不分配离屏图层;
+     * RENDER_MODE_LAYER保留原来离屏图层加CLEAR擦除的绘制方式
+     *
+     * @param renderMode 绘制方式
+     */
+    public void setRenderMode(@SmoothWaveDrawable.RenderMode int renderMode) {
+        if (this.renderMode != renderMode) {
+            this.renderMode = renderMode;
+            invalidateSelf();
+        }
+    }
+
     public boolean isGray() {
         return isGray;
     }
@@ -2,30 +2,72 @@ package com.example.myapplication;
 
 import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.RectF;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
-import android.os.Build;
 import android.util.AttributeSet;
 import android.util.Pair;
 import android.util.Range;
+import android.view.GestureDetector;
 import android.view.Gravity;
+import android.view.MotionEvent;
 import android.view.View;
+import android.widget.OverScroller;
 
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static com.example.myapplication.SmoothCylindricalDrawable.TEXT_SIZE_PERCENT;
 
 public class SmoothCylindricalView extends View {
     private final static int COLUMN_COUNT = 6;
+    /**
+     * 虚拟化滚动模式和排行榜模式下排名靠后的进度条的最低透明度
+     */
+    private final static float MIN_PROGRESS_ALPHA = 0.2f;
     private final float progressWidthPercent = 0.053f;
     private final float paddingIcon = 0.2f;
     private final float paddingAxisText = 0.0736f;
     private final SmoothCylindricalAxisDrawable axisDrawable = new SmoothCylindricalAxisDrawable();
     private final List<SmoothCylindricalDrawable> progressDrawables = new ArrayList<>();
-    private List<Pair<Integer, Drawable>> originData;
+    /**
+     * 还没有应用的原始数据.高频设置数据时只记录最后一次,在下一帧统一应用
+     */
+    private List<Pair<Integer, Drawable>> pendingOriginData;
+    /**
+     * 流式Top-K排名.非滚动模式只保留前COLUMN_COUNT名,虚拟化滚动模式保留全部;
+     * 单个键的数值变化时只调整堆,不重新排序全部数据
+     */
+    private final TopKSelector selector = new TopKSelector(COLUMN_COUNT);
+    /**
+     * 键对应的图标
+     */
+    private final HashMap<Object, Drawable> keyIcons = new HashMap<>();
+    /**
+     * 当前显示的排名,按名次从高到低:键、数值、图标,以及最近一次读取排名时该名次是否有变化、其中键或图标是否有变化
+     */
+    private Object[] rankKeys = new Object[0];
+    private int[] rankValues = new int[0];
+    private Drawable[] rankIcons = new Drawable[0];
+    private boolean[] rankChanged = new boolean[0];
+    private boolean[] rankKeyChanged = new boolean[0];
+    /**
+     * 名次总数,以及上面几个数组中第一个元素对应的名次和有效个数.非滚动模式下读取全部名次(不超过COLUMN_COUNT);
+     * 虚拟化滚动模式下只读取可见的一段名次,从boundFirst开始
+     */
+    private int rankCount;
+    private int rankFirst;
+    private int rankWindowSize;
+    /**
+     * 读取排名用的临时数组
+     */
+    private Object[] nextRankKeys = new Object[0];
+    private int[] nextRankValues = new int[0];
+    private final FrameUpdateScheduler originDataScheduler = new FrameUpdateScheduler(this::applyOriginData);
     /**
      * 当前进度条依附的方向
      *
@@ -33,6 +75,101 @@ public class SmoothCylindricalView extends View {
      */
     @SmoothCylindricalDrawable.Align
     private int align = Gravity.BOTTOM;
+    /**
+     * 坐标轴和每个进度条的显示列表,进度条的按序号与progressDrawables对齐
+     */
+    private final DisplayListLayer axisLayer = new DisplayListLayer("SmoothCylindricalAxis");
+    private final List<DisplayListLayer> progressLayers = new ArrayList<>();
+    /**
+     * 坐标轴和每个进度条从上次画完到现在是否有变化.只有一个进度条在播放动画时,其余各层回放显示列表
+     */
+    private boolean isAxisDirty = true;
+    private boolean[] progressDirty = new boolean[0];
+    /**
+     * 数据、方向或尺寸是否有变化,需要重新计算各进度条和坐标轴的位置
+     */
+    private boolean isLayoutDirty = true;
+    /**
+     * 虚拟化滚动模式:进度条按固定间距排列,个数不受COLUMN_COUNT限制,依附上下时横向滚动、依附左右时纵向滚动.
+     * 只给可见的数据序号绑定进度条Drawable,滚出可见范围的放回复用池,Drawable个数和每帧计算量只与可见个数有关
+     */
+    private boolean isVirtualized = false;
+    /**
+     * 设定的进度条间距(进度条粗细加间隔),单位像素;<=0时与非滚动模式下COLUMN_COUNT个进度条的间距相同
+     */
+    private float barPitch = 0;
+    /**
+     * 虚拟化滚动模式的布局结果:实际间距、滚动方向上的可见长度
+     */
+    private float pitch;
+    private float viewportLength;
+    /**
+     * 虚拟化滚动模式下所有进度条共用第0个位置的区域和图标位置(百分比),绘制时再按序号平移
+     */
+    private final RectF slotRect = new RectF();
+    private float slotIconPosition;
+    /**
+     * 滚动距离,单位像素
+     */
+    private float scrollOffset;
+    /**
+     * 虚拟化滚动模式下progressDrawables中第一个进度条对应的数据序号
+     */
+    private int boundFirst;
+    /**
+     * 坐标轴显示的数字范围,绑定进度条时换算百分比
+     */
+    private Range<Float> axisRange;
+    /**
+     * 复用池:回收的进度条Drawable和显示列表
+     */
+    private final List<SmoothCylindricalDrawable> recycledDrawables = new ArrayList<>();
+    private final List<DisplayListLayer> recycledLayers = new ArrayList<>();
+    private int layerCount;
+    /**
+     * 重新绑定可见进度条时暂存上一次的绑定结果,与progressDirty交替使用
+     */
+    private final List<SmoothCylindricalDrawable> boundDrawables = new ArrayList<>();
+    private final List<DisplayListLayer> boundLayers = new ArrayList<>();
+    private boolean[] boundDirty = new boolean[0];
+    /**
+     * 排行榜模式:每个键在前COLUMN_COUNT名期间固定使用同一个进度条(车道),名次变化时进度条滑动到新位置,
+     * 进度同时过渡到新数值;名次和数值都没有变化的进度条保留文字、图标和显示列表.只在非滚动模式下生效
+     */
+    private boolean isLeaderboardMode = false;
+    /**
+     * 按车道(progressDrawables中的序号)保存的键、数值、图标、目标名次、上次绘制的位置(名次,可以是小数)
+     */
+    private final Object[] laneKeys = new Object[COLUMN_COUNT];
+    private final int[] laneValues = new int[COLUMN_COUNT];
+    private final Drawable[] laneIcons = new Drawable[COLUMN_COUNT];
+    private final int[] laneRanks = new int[COLUMN_COUNT];
+    private final float[] lanePositions = new float[COLUMN_COUNT];
+    /**
+     * 按名次从高到低排列的车道,每次更新后用插入排序调整,排名基本稳定时接近O(K)
+     */
+    private final int[] laneOrder = new int[COLUMN_COUNT];
+    /**
+     * 新排名中的名次是否已经有车道认领
+     */
+    private final boolean[] rankClaimed = new boolean[COLUMN_COUNT];
+    /**
+     * 坐标轴刻度对应的最小值和最大值,没有变化时不重新计算刻度
+     */
+    private float axisMin;
+    private float axisMax;
+    /**
+     * 所有进度条共用的动画时钟,按数据序号保存各进度的当前值、速度和目标值.
+     * 排行榜模式下按车道保存:[0, COLUMN_COUNT)是进度,[COLUMN_COUNT, 2 * COLUMN_COUNT)是位置(名次)
+     */
+    private final ProgressSpringClock progressClock = new ProgressSpringClock(this::onProgressFrame);
+    /**
+     * 进度条变化动效播放时间
+     */
+    private long progressDuration = 1000L;
+    private GestureDetector gestureDetector;
+    private OverScroller scroller;
+    private boolean isFlinging;
 
     public SmoothCylindricalView(Context context) {
         super(context);
@@ -58,50 +195,575 @@ public class SmoothCylindricalView extends View {
      * 释放资源.防止内存泄漏.界面销毁的时候调用.
      */
     public void release() {
-        if (progressDrawables != null) {
-            for (Drawable drawable : progressDrawables) {
-                if (drawable != null) {
-                    drawable.setCallback(null);
-                }
-            }
-            progressDrawables.clear();
+        originDataScheduler.cancel();
+        pendingOriginData = null;
+        scroller.forceFinished(true);
+        isFlinging = false;
+        progressClock.cancel();
+        recycleAllBars();
+        recycledDrawables.clear();
+        for (DisplayListLayer layer : recycledLayers) {
+            layer.release();
         }
-        if (originData != null) {
-            originData.clear();
+        recycledLayers.clear();
+        selector.clear();
+        keyIcons.clear();
+        Arrays.fill(rankKeys, null);
+        Arrays.fill(rankIcons, null);
+        rankCount = 0;
+        Arrays.fill(laneKeys, null);
+        Arrays.fill(laneIcons, null);
+        axisLayer.release();
+    }
+
+    /**
+     * 把所有进度条放回复用池
+     */
+    private void recycleAllBars() {
+        for (int i = 0; i < progressDrawables.size(); i++) {
+            recycleBar(progressDrawables.get(i), progressLayers.get(i));
         }
+        progressDrawables.clear();
+        progressLayers.clear();
+    }
+
+    private void recycleBar(SmoothCylindricalDrawable drawable, DisplayListLayer layer) {
+        drawable.recycle();
+        layer.invalidate();
+        recycledDrawables.add(drawable);
+        recycledLayers.add(layer);
+    }
+
+    private SmoothCylindricalDrawable obtainDrawable() {
+        int last = recycledDrawables.size() - 1;
+        return last >= 0 ? recycledDrawables.remove(last) : new SmoothCylindricalDrawable();
+    }
+
+    private DisplayListLayer obtainLayer() {
+        int last = recycledLayers.size() - 1;
+        return last >= 0 ? recycledLayers.remove(last) : new DisplayListLayer("SmoothCylindricalProgress" + layerCount++);
     }
 
     @Override
     public void invalidateDrawable(Drawable drawable) {
         super.invalidateDrawable(drawable);
+        if (drawable == axisDrawable) {
+            isAxisDirty = true;
+        } else {
+            int index = progressDrawables.indexOf(drawable);
+            if (index >= 0 && index < progressDirty.length) {
+                progressDirty[index] = true;
+            }
+        }
         invalidate();
     }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        isLayoutDirty = true;
+    }
+
     /**
-     * 设置原始数据
+     * 设置原始数据,替换全部数据.数据按序号作为键,之后可以用updateValue()按序号修改单个数值
      *
      * @param data List<Pair<Integer, Drawable>>
      */
     public void setOriginData(List<Pair<Integer, Drawable>> data) {
-        this.originData = data == null ? Collections.emptyList() : new ArrayList<>(data);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-            this.originData.sort((o1, o2) -> Integer.compare(o2.first, o1.first));
+        pendingOriginData = data == null ? Collections.emptyList() : new ArrayList<>(data);
+        originDataScheduler.schedule();
+    }
+
+    /**
+     * 设置原始数据(例如ChartDataFile中映射到内存的数值列),替换全部数据.数值直接放入Top-K排名,不创建中间列表;
+     * 数据按序号作为键,之后可以用updateValue()按序号修改单个数值.
+     * 非滚动模式下只显示前COLUMN_COUNT个数据,先在映射的数值列上扫描出最大的COLUMN_COUNT个,只为它们创建键,
+     * 分配的对象与文件大小无关;之后切换到虚拟化滚动模式时需要重新设置数据
+     *
+     * @param values 数值,从当前position开始
+     * @param icons 每个数值对应的图标,按序号与values对齐;为null或长度不足时没有图标
+     */
+    public void setOriginData(FloatBuffer values, List<Drawable> icons) {
+        if (values == null) {
+            setOriginData(null);
+            return;
+        }
+        pendingOriginData = null;
+        selector.clear();
+        keyIcons.clear();
+        int start = values.position();
+        int size = values.remaining();
+        if (isVirtualized) {
+            for (int i = 0; i < size; i++) {
+                addOriginValue(i, Math.round(values.get(start + i)), icons);
+            }
+            originDataScheduler.schedule();
+            return;
         }
+        int[] topIndexes = new int[COLUMN_COUNT];
+        int topCount = 0;
+        for (int i = 0; i < size; i++) { // 插入排序维护最大的COLUMN_COUNT个数值的序号,从大到小
+            int value = Math.round(values.get(start + i));
+            int position = topCount;
+            while (position > 0 && Math.round(values.get(start + topIndexes[position - 1])) < value) {
+                position--;
+            }
+            if (position >= COLUMN_COUNT) {
+                continue;
+            }
+            int moveCount = Math.min(topCount, COLUMN_COUNT - 1) - position;
+            System.arraycopy(topIndexes, position, topIndexes, position + 1, moveCount);
+            topIndexes[position] = i;
+            topCount = Math.min(topCount + 1, COLUMN_COUNT);
+        }
+        for (int i = 0; i < topCount; i++) { // 按名次顺序加入,数值相同时仍然是序号小的在前
+            int index = topIndexes[i];
+            addOriginValue(index, Math.round(values.get(start + index)), icons);
+        }
+        originDataScheduler.schedule();
+    }
 
-        progressDrawables.clear();
-        for (int i = 0; i < COLUMN_COUNT && i < originData.size(); i++) {
-            SmoothCylindricalDrawable drawable = new SmoothCylindricalDrawable();
-            drawable.setAlign(align);
-            drawable.setCallback(this);
-            drawable.setTopText(String.valueOf(originData.get(i).first));
-            progressDrawables.add(drawable);
+    /**
+     * 把数值列中的一个数值按序号作为键加入Top-K排名
+     *
+     * @param index 序号
+     * @param value 数值
+     * @param icons 每个数值对应的图标,可以为null
+     */
+    private void addOriginValue(int index, int value, List<Drawable> icons) {
+        Integer key = index;
+        selector.add(key, value);
+        if (icons != null && index < icons.size() && icons.get(index) != null) {
+            keyIcons.put(key, icons.get(index));
+        }
+    }
+
+    /**
+     * 修改单个键的数值,键不存在时加入.前K名的调整是O(log K),排名在下一帧统一读取,
+     * 只有名次或数值有变化的进度条重新绑定
+     *
+     * @param key 键,例如分类名称
+     * @param value 数值
+     * @param icon 图标;为null时保留原来的图标
+     */
+    public void updateValue(Object key, int value, Drawable icon) {
+        if (key == null) {
+            return;
+        }
+        applyPendingData();
+        boolean isChanged = selector.update(key, value);
+        if (icon != null && keyIcons.put(key, icon) != icon) {
+            isChanged = true;
+        }
+        if (isChanged) {
+            originDataScheduler.schedule();
+        }
+    }
+
+    /**
+     * 修改单个键的数值,键不存在时加入
+     *
+     * @param key 键,例如分类名称
+     * @param value 数值
+     */
+    public void updateValue(Object key, int value) {
+        updateValue(key, value, null);
+    }
+
+    /**
+     * 删除单个键
+     *
+     * @param key 键
+     */
+    public void removeValue(Object key) {
+        applyPendingData();
+        if (key != null && selector.remove(key)) {
+            keyIcons.remove(key);
+            originDataScheduler.schedule();
+        }
+    }
+
+    /**
+     * 应用最后一次设置的原始数据和之后的单个数值修改.同一帧内多次设置数据只读取一次排名
+     */
+    private void applyOriginData() {
+        applyPendingData();
+        applyRanking();
+    }
+
+    /**
+     * 把还没有应用的整组原始数据放入Top-K排名,按序号作为键.批量加入,读取排名时一次排序
+     */
+    private void applyPendingData() {
+        if (pendingOriginData == null) {
+            return;
+        }
+        List<Pair<Integer, Drawable>> data = pendingOriginData;
+        pendingOriginData = null;
+        selector.clear();
+        keyIcons.clear();
+        for (int i = 0; i < data.size(); i++) {
+            Pair<Integer, Drawable> item = data.get(i);
+            Integer key = i;
+            selector.add(key, item.first);
+            if (item.second != null) {
+                keyIcons.put(key, item.second);
+            }
+        }
+    }
+
+    /**
+     * 读取排名,与当前显示的排名逐个名次比较.只有名次或数值有变化的进度条重新绑定,
+     * 键变化时只替换坐标轴上对应的图标,不重新布局;坐标轴范围变化时其余进度条只更新目标进度;进度条个数变化时重建
+     */
+    private void applyRanking() {
+        if (isLeaderboardActive()) {
+            applyLeaderboard();
+            return;
+        }
+        if (readRanking()) {
+            if (isVirtualized) {
+                isLayoutDirty = true; // 布局时重新绑定可见的进度条
+                postInvalidate();
+            } else {
+                rebuildBars();
+            }
+            return;
+        }
+        if (!isVirtualized) {
+            for (int i = 0; i < rankWindowSize; i++) {
+                if (rankKeyChanged[i] && axisDrawable.setIcon(i, rankIcons[i])) { // 进度条位置不变,只替换坐标轴上该名次的图标
+                    isAxisDirty = true;
+                }
+            }
+        }
+        float oldLower = axisRange == null ? 0 : axisRange.getLower();
+        float oldUpper = axisRange == null ? 0 : axisRange.getUpper();
+        boolean isRangeChanged = true;
+        if (rankCount > 0 && !isLayoutDirty) { // 需要布局时坐标轴和目标进度由布局统一计算
+            updateAxisData();
+            isRangeChanged = axisRange.getLower() != oldLower || axisRange.getUpper() != oldUpper;
+            if (isRangeChanged) {
+                isAxisDirty = true;
+            }
+            for (int i = 0; i < rankWindowSize; i++) {
+                if (isRangeChanged || rankChanged[i]) {
+                    retargetRank(rankFirst + i);
+                }
+            }
+        }
+        boolean isChanged = isRangeChanged;
+        for (int i = 0; i < progressDrawables.size(); i++) {
+            int position = (isVirtualized ? boundFirst + i : i) - rankFirst;
+            if (position >= 0 && position < rankWindowSize && rankChanged[position]) {
+                progressDrawables.get(i).setTopText(String.valueOf(rankValues[position]));
+                progressDirty[i] = true;
+                isChanged = true;
+            }
+        }
+        if (isChanged) {
+            postInvalidate();
+        }
+    }
+
+    /**
+     * 排行榜模式下应用新的排名:按键找到每条车道的新名次,离开前COLUMN_COUNT名的车道让给新进入的键,
+     * 再用插入排序把车道调整成新的名次顺序.名次变化的进度条滑动到新位置,数值变化的进度条过渡到新进度,
+     * 其余进度条不重新绑定.键的总数少于车道数时多出的车道停到最后一名之后隐藏,留给以后新进入的键
+     */
+    private void applyLeaderboard() {
+        readRanking();
+        int count = rankCount;
+        int oldLaneCount = progressDrawables.size();
+        if (count > oldLaneCount) { // 新增的车道等待认领新进入的键,布局时再设置区域
+            while (progressDrawables.size() < count) {
+                laneRanks[addLane()] = -1;
+            }
+            progressDirty = Arrays.copyOf(progressDirty, count);
+            isLayoutDirty = true;
+        }
+
+        boolean isRangeChanged = false;
+        if (count > 0 && !isLayoutDirty) { // 需要布局时坐标轴和目标进度由布局统一计算
+            Range<Float> oldRange = axisRange;
+            updateAxisData();
+            isRangeChanged = axisRange != oldRange;
+            isAxisDirty |= isRangeChanged;
+        }
+
+        // 按键找到每条车道的新名次,K很小,直接线性查找,不分配对象
+        Arrays.fill(rankClaimed, false);
+        for (int lane = 0; lane < oldLaneCount; lane++) {
+            int rank = -1;
+            for (int i = 0; i < count; i++) {
+                if (!rankClaimed[i] && rankKeys[i].equals(laneKeys[lane])) {
+                    rank = i;
+                    rankClaimed[i] = true;
+                    break;
+                }
+            }
+            int oldRank = laneRanks[lane];
+            laneRanks[lane] = rank;
+            if (rank < 0) {
+                continue;
+            }
+            if (laneValues[lane] != rankValues[rank] || laneIcons[lane] != rankIcons[rank]) {
+                bindLane(lane, rank, false);
+                continue;
+            }
+            if (oldRank != rank) { // 只有名次变化:滑动到新位置,透明度跟随名次
+                progressClock.setTarget(COLUMN_COUNT + lane, rank);
+                progressDrawables.get(lane).setProgressAlpha(getRankAlpha(rank));
+                progressDirty[lane] = true;
+            }
+            if (isRangeChanged) {
+                retargetLane(lane);
+            }
+        }
+
+        // 新进入前COLUMN_COUNT名的键使用空出来的车道
+        int lane = 0;
+        for (int rank = 0; rank < count; rank++) {
+            if (rankClaimed[rank]) {
+                continue;
+            }
+            while (laneRanks[lane] >= 0) {
+                lane++;
+            }
+            laneRanks[lane] = rank;
+            bindLane(lane, rank, true);
+        }
+
+        // 没有认领到名次的车道(键的总数少于车道数)停到最后一名之后
+        int laneCount = progressDrawables.size();
+        for (lane = 0; lane < laneCount; lane++) {
+            if (laneRanks[lane] < 0 && laneKeys[lane] != null) {
+                parkLane(lane);
+            }
+        }
+
+        // 插入排序:上一次的顺序基本有序,只移动名次变化的车道;停用的车道排在最后
+        for (int i = oldLaneCount; i < laneCount; i++) {
+            laneOrder[i] = i;
+        }
+        for (int i = 1; i < laneCount; i++) {
+            int current = laneOrder[i];
+            int j = i - 1;
+            while (j >= 0 && getLaneSortRank(laneOrder[j]) > getLaneSortRank(current)) {
+                laneOrder[j + 1] = laneOrder[j];
+                j--;
+            }
+            laneOrder[j + 1] = current;
         }
         postInvalidate();
     }
 
+    /**
+     * 添加一条车道
+     *
+     * @return 车道序号
+     */
+    private int addLane() {
+        SmoothCylindricalDrawable drawable = obtainDrawable();
+        drawable.setAlign(align);
+        drawable.setCallback(this);
+        progressDrawables.add(drawable);
+        progressLayers.add(obtainLayer());
+        return progressDrawables.size() - 1;
+    }
+
+    /**
+     * 把某个名次的键、数值和图标绑定到车道上
+     *
+     * @param lane 车道
+     * @param rank 名次
+     * @param isEntering true新进入前COLUMN_COUNT名:从最后一名之后滑入,进度直接到达
+     */
+    private void bindLane(int lane, int rank, boolean isEntering) {
+        SmoothCylindricalDrawable drawable = progressDrawables.get(lane);
+        laneKeys[lane] = rankKeys[rank];
+        laneValues[lane] = rankValues[rank];
+        laneIcons[lane] = rankIcons[rank];
+        drawable.setTopText(String.valueOf(laneValues[lane]));
+        drawable.setProgressAlpha(getRankAlpha(rank));
+        if (isEntering) {
+            progressClock.jumpTo(COLUMN_COUNT + lane, COLUMN_COUNT);
+            progressClock.jumpTo(lane, Float.NaN); // 布局或下面设置目标进度时直接到达
+        }
+        progressClock.setTarget(COLUMN_COUNT + lane, rank);
+        if (!isLayoutDirty) {
+            retargetLane(lane);
+        }
+        progressDirty[lane] = true;
+    }
+
+    /**
+     * 停用一条车道:滑动到最后一名之后(第COLUMN_COUNT个位置),到达后不再绘制.进度条和显示列表保留,
+     * 有新的键进入前COLUMN_COUNT名时直接复用
+     *
+     * @param lane 车道
+     */
+    private void parkLane(int lane) {
+        laneKeys[lane] = null;
+        progressClock.setTarget(COLUMN_COUNT + lane, COLUMN_COUNT);
+    }
+
+    /**
+     * @param lane 车道
+     * @return 车道排序用的名次,停用的车道视为第COLUMN_COUNT名
+     */
+    private int getLaneSortRank(int lane) {
+        return laneRanks[lane] < 0 ? COLUMN_COUNT : laneRanks[lane];
+    }
+
+    /**
+     * 按当前坐标轴范围更新车道的目标进度
+     *
+     * @param lane 车道
+     */
+    private void retargetLane(int lane) {
+        SmoothCylindricalDrawable drawable = progressDrawables.get(lane);
+        float percent = getPercent(laneValues[lane]);
+        progressClock.setTarget(lane, percent);
+        drawable.setPercent(percent, false);
+        drawable.setShowPercent(progressClock.getPosition(lane));
+    }
+
+    /**
+     * @param rank 名次
+     * @return 该名次进度条的透明度,虚拟化滚动模式和排行榜模式共用
+     */
+    private float getRankAlpha(int rank) {
+        return Math.max(1 - 0.2f * rank, MIN_PROGRESS_ALPHA);
+    }
+
+    /**
+     * 从Top-K排名读取新的排名.非滚动模式读取全部名次;虚拟化滚动模式只读取已绑定进度条的一段名次,
+     * 开销与可见的进度条个数有关,与数据总数无关
+     *
+     * @return true名次总数有变化
+     */
+    private boolean readRanking() {
+        return isVirtualized ? readRanking(boundFirst, progressDrawables.size()) : readRanking(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 从Top-K排名读取一段新的排名,与上一次读取的结果按名次逐个比较,记录每个名次是否有变化,
+     * 以及其中键或图标是否有变化(需要重新布局坐标轴上的图标)
+     *
+     * @param first 第一个名次
+     * @param windowSize 最多读取的个数
+     * @return true名次总数有变化
+     */
+    private boolean readRanking(int first, int windowSize) {
+        int count = selector.getTopSize();
+        first = Math.max(0, Math.min(first, count));
+        int size = Math.min(windowSize, count - first);
+        if (nextRankKeys.length < size) {
+            nextRankKeys = new Object[size];
+            nextRankValues = new int[size];
+        }
+        if (rankKeys.length < size) {
+            rankKeys = Arrays.copyOf(rankKeys, size);
+            rankValues = Arrays.copyOf(rankValues, size);
+            rankIcons = Arrays.copyOf(rankIcons, size);
+            rankChanged = new boolean[size];
+            rankKeyChanged = new boolean[size];
+        }
+        // 上一次读取的结果中仍在本次范围内的名次移动到新的位置上,位置[oldStart, oldEnd)可以与上一次比较
+        int shift = first - rankFirst;
+        int oldStart = Math.max(0, -shift);
+        int oldEnd = Math.min(size, rankWindowSize - shift);
+        if (shift != 0 && oldEnd > oldStart) {
+            System.arraycopy(rankKeys, oldStart + shift, rankKeys, oldStart, oldEnd - oldStart);
+            System.arraycopy(rankValues, oldStart + shift, rankValues, oldStart, oldEnd - oldStart);
+            System.arraycopy(rankIcons, oldStart + shift, rankIcons, oldStart, oldEnd - oldStart);
+        }
+        selector.getRanking(first, size, nextRankKeys, nextRankValues);
+        for (int i = 0; i < size; i++) {
+            Object key = nextRankKeys[i];
+            int value = nextRankValues[i];
+            Drawable icon = keyIcons.get(key);
+            boolean isOld = i >= oldStart && i < oldEnd;
+            rankKeyChanged[i] = !isOld || !key.equals(rankKeys[i]) || icon != rankIcons[i];
+            rankChanged[i] = rankKeyChanged[i] || value != rankValues[i];
+            rankKeys[i] = key;
+            rankValues[i] = value;
+            rankIcons[i] = icon;
+        }
+        Arrays.fill(nextRankKeys, 0, size, null);
+        if (size < rankWindowSize) { // 释放不再显示的键和图标
+            Arrays.fill(rankKeys, size, rankWindowSize, null);
+            Arrays.fill(rankIcons, size, rankWindowSize, null);
+        }
+        rankFirst = first;
+        rankWindowSize = size;
+        boolean isCountChanged = count != rankCount;
+        rankCount = count;
+        return isCountChanged;
+    }
+
+    /**
+     * 按当前坐标轴范围更新某个名次的目标进度.有进度条显示的名次播放动画,其余直接到达
+     *
+     * @param index 名次
+     */
+    private void retargetRank(int index) {
+        float percent = getPercent(rankValues[index - rankFirst]);
+        int position = isVirtualized ? index - boundFirst : index;
+        if (position >= 0 && position < progressDrawables.size()) {
+            progressClock.setTarget(index, percent);
+            progressDrawables.get(position).setPercent(percent, false);
+            progressDrawables.get(position).setShowPercent(progressClock.getPosition(index));
+        } else {
+            progressClock.jumpTo(index, percent);
+        }
+    }
+
+    /**
+     * 重建进度条,旧的进度条放回复用池.非滚动模式下为前COLUMN_COUNT个数据各绑定一个进度条;
+     * 虚拟化滚动模式下等到布局后只绑定可见的进度条
+     */
+    private void rebuildBars() {
+        recycleAllBars();
+        if (isLeaderboardActive()) {
+            progressClock.setSize(COLUMN_COUNT * 2);
+            for (int lane = 0; lane < COLUMN_COUNT; lane++) {
+                if (lane < rankCount) {
+                    addLane();
+                    laneRanks[lane] = lane;
+                    laneOrder[lane] = lane;
+                    laneKeys[lane] = rankKeys[lane];
+                    laneValues[lane] = rankValues[lane];
+                    laneIcons[lane] = rankIcons[lane];
+                    progressDrawables.get(lane).setTopText(String.valueOf(laneValues[lane]));
+                    progressDrawables.get(lane).setProgressAlpha(getRankAlpha(lane));
+                    progressClock.jumpTo(COLUMN_COUNT + lane, lane);
+                } else {
+                    laneKeys[lane] = null;
+                    laneIcons[lane] = null;
+                }
+            }
+        } else if (!isVirtualized) {
+            for (int i = 0; i < COLUMN_COUNT && i < rankCount; i++) {
+                SmoothCylindricalDrawable drawable = obtainDrawable();
+                drawable.setAlign(align);
+                drawable.setCallback(this);
+                drawable.setTopText(String.valueOf(rankValues[i]));
+                progressDrawables.add(drawable);
+                progressLayers.add(obtainLayer());
+            }
+        }
+        progressDirty = new boolean[progressDrawables.size()];
+        isLayoutDirty = true;
+        postInvalidate();
+    }
+
     private void init() {
         axisDrawable.setCallback(this);
         axisDrawable.setAlign(align);
+        progressClock.setDuration(progressDuration);
+        initGesture();
 
         Drawable testDrawable = new ColorDrawable(0xffff0000);
         List<Pair<Integer, Drawable>> list = new ArrayList<>();
@@ -114,23 +776,124 @@ public class SmoothCylindricalView extends View {
         setOriginData(list);
     }
 
+    private void initGesture() {
+        scroller = new OverScroller(getContext());
+        gestureDetector = new GestureDetector(getContext(), new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) { // 内容超出可见区域时才接管后续事件,否则交给View默认的点击处理
+                return isScrollable();
+            }
+
+            @Override
+            public boolean onSingleTapUp(MotionEvent e) {
+                if (!isScrollable()) { // 事件交给了View默认处理,由它触发点击
+                    return false;
+                }
+                performClick();
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                if (getParent() != null) { // 滚动开始后不让外层容器拦截
+                    getParent().requestDisallowInterceptTouchEvent(true);
+                }
+                setScrollOffset(scrollOffset + (isHorizontalScroll() ? distanceX : distanceY));
+                return true;
+            }
+
+            @Override
+            public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+                float velocity = isHorizontalScroll() ? velocityX : velocityY;
+                scroller.fling((int) scrollOffset, 0, (int) -velocity, 0, 0, (int) getMaxScrollOffset(), 0, 0);
+                isFlinging = true;
+                postInvalidateOnAnimation();
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!isVirtualized) {
+            return super.onTouchEvent(event);
+        }
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN && isFlinging) { // 按下时停止惯性滑动
+            scroller.forceFinished(true);
+            isFlinging = false;
+        }
+        return gestureDetector.onTouchEvent(event) || super.onTouchEvent(event);
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    @Override
+    public void computeScroll() {
+        super.computeScroll();
+        if (!isFlinging) {
+            return;
+        }
+        if (scroller.computeScrollOffset()) {
+            setScrollOffset(scroller.getCurrX());
+            postInvalidateOnAnimation();
+        } else {
+            isFlinging = false;
+        }
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
-        convertData();
+        originDataScheduler.flush(); // 帧回调之前就触发了绘制时,先应用最新数据
+
+        if (isLayoutDirty) { // 只在布局有变化时重新计算,不会打断正在播放的进度条动画
+            if (isVirtualized) {
+                layoutVirtualBars();
+            } else if (isLeaderboardMode) {
+                layoutLeaderboard();
+            } else {
+                convertData();
+            }
+            layoutAxis();
+            isLayoutDirty = false;
+            isAxisDirty = true;
+            Arrays.fill(progressDirty, true);
+        }
 
         drawAxis(canvas);
 
-        drawProgressBars(canvas);
+        if (isVirtualized) {
+            bindVisibleBars(0, 0); // 滚动时新滚入的进度条直接到达
+            drawVirtualBars(canvas);
+        } else if (isLeaderboardMode) {
+            drawLeaderboardBars(canvas);
+        } else {
+            drawProgressBars(canvas);
+        }
     }
 
     /**
-     * 画坐标轴
+     * 画坐标轴.没有变化时回放显示列表
      *
      * @param canvas 画布
      */
     private void drawAxis(Canvas canvas) {
+        Canvas target = axisLayer.begin(canvas, isAxisDirty, getWidth(), getHeight());
+        if (target != null) {
+            axisDrawable.draw(target);
+        }
+        axisLayer.end(canvas);
+        isAxisDirty = false;
+    }
+
+    /**
+     * 计算坐标轴的可见区域
+     */
+    private void layoutAxis() {
         int width = getWidth();
         int height = getHeight();
 
@@ -161,28 +924,300 @@ public class SmoothCylindricalView extends View {
             default:
                 break;
         }
-        axisDrawable.draw(canvas);
     }
 
     /**
-     * 画进度条
+     * 画进度条.没有变化的进度条回放显示列表
      *
      * @param canvas 画布
      */
     private void drawProgressBars(Canvas canvas) {
         if (progressDrawables != null && !progressDrawables.isEmpty()) {
             for (int i = 0; i < progressDrawables.size(); i++) {
-                SmoothCylindricalDrawable drawable = progressDrawables.get(i);
-                drawable.draw(canvas);
+                DisplayListLayer layer = progressLayers.get(i);
+                Canvas target = layer.begin(canvas, progressDirty[i], getWidth(), getHeight());
+                if (target != null) {
+                    progressDrawables.get(i).draw(target);
+                }
+                layer.end(canvas);
+                progressDirty[i] = false;
+            }
+        }
+    }
+
+    /**
+     * 虚拟化滚动模式的布局.所有进度条共用第0个位置上的区域,绘制时再按序号平移,计算量与数据个数无关;
+     * 只读取可见的一段名次,不可见名次的进度在滚入绑定时直接到达
+     */
+    private void layoutVirtualBars() {
+        int oldFirst = boundFirst;
+        int oldEnd = boundFirst + progressDrawables.size();
+        recycleAllBars();
+        if (rankCount == 0) {
+            return;
+        }
+        layoutSlots();
+        scrollOffset = Math.max(0, Math.min(scrollOffset, getMaxScrollOffset()));
+
+        // 布局前就可见的名次动画过渡到新的目标值,其余的直接到达,每帧只推进可见的进度
+        progressClock.setSize(rankCount);
+        bindVisibleBars(oldFirst, oldEnd);
+    }
+
+    /**
+     * 排行榜模式的布局.与滚动模式一样所有进度条共用第0个位置上的区域,绘制时按各自的位置(名次)平移
+     */
+    private void layoutLeaderboard() {
+        if (rankCount == 0) {
+            return;
+        }
+        layoutSlots();
+        for (int lane = 0; lane < progressDrawables.size(); lane++) {
+            SmoothCylindricalDrawable drawable = progressDrawables.get(lane);
+            drawable.setBounds(0, 0, getWidth(), getHeight());
+            drawable.setVisibleRect(slotRect.left, slotRect.top, slotRect.right, slotRect.bottom);
+            retargetLane(lane);
+        }
+    }
+
+    /**
+     * 计算第0个位置上进度条的区域、进度条间距和坐标轴数据
+     */
+    private void layoutSlots() {
+        int width = getWidth();
+        int height = getHeight();
+        float progressWidth; // 进度条粗细
+        float paddingIconPixel; // 坐标轴图标留出的空间,实际像素值
+        switch (align) {
+            case Gravity.LEFT:
+            case Gravity.RIGHT:
+                progressWidth = height * progressWidthPercent;
+                paddingIconPixel = width * paddingIcon;
+                viewportLength = height - height * paddingAxisText;
+                pitch = getPitch(progressWidth);
+                float top = (pitch - progressWidth) / 2;
+                if (align == Gravity.LEFT) {
+                    slotRect.set(paddingIconPixel, top, width, top + progressWidth);
+                } else {
+                    slotRect.set(0, top, width - paddingIconPixel, top + progressWidth);
+                }
+                break;
+            case Gravity.TOP:
+            case Gravity.BOTTOM:
+            default:
+                progressWidth = width * progressWidthPercent;
+                paddingIconPixel = height * paddingIcon;
+                viewportLength = width - width * paddingAxisText;
+                pitch = getPitch(progressWidth);
+                float left = width - viewportLength + (pitch - progressWidth) / 2;
+                if (align == Gravity.BOTTOM) {
+                    slotRect.set(left, 0, left + progressWidth, height - paddingIconPixel);
+                } else {
+                    slotRect.set(left, paddingIconPixel, left + progressWidth, height);
+                }
+                break;
+        }
+        slotIconPosition = pitch / 2 / viewportLength;
+        axisDrawable.setTextSize(progressWidth * TEXT_SIZE_PERCENT);
+        axisDrawable.setIconData(null); // 图标随进度条一起滚动,由进度条绘制
+        axisDrawable.setIconSize(paddingIconPixel, progressWidth * 1.2f);
+
+        updateAxisData();
+    }
+
+    private float getPitch(float progressWidth) {
+        return isVirtualized && barPitch > 0 ? Math.max(barPitch, progressWidth) : viewportLength / COLUMN_COUNT;
+    }
+
+    /**
+     * 把可见范围内的数据序号绑定到进度条上.仍然可见的进度条保留原来的Drawable和显示列表,
+     * 滚出的放回复用池,新滚入的从复用池取出重新绑定.只读取可见范围内的名次
+     *
+     * @param animateFirst 新绑定时动画过渡到目标进度的第一个名次,其余名次直接到达
+     * @param animateEnd 新绑定时动画过渡到目标进度的最后一个名次(不包含)
+     */
+    private void bindVisibleBars(int animateFirst, int animateEnd) {
+        int size = rankCount;
+        int first = 0;
+        int count = 0;
+        if (size > 0 && pitch > 0) {
+            first = Math.min((int) (scrollOffset / pitch), size - 1);
+            count = Math.min((int) ((scrollOffset + viewportLength) / pitch), size - 1) - first + 1;
+        }
+        int boundCount = progressDrawables.size();
+        if (first == boundFirst && count == boundCount) {
+            return;
+        }
+        readRanking(first, count);
+        boundDrawables.addAll(progressDrawables);
+        boundLayers.addAll(progressLayers);
+        boolean[] oldDirty = progressDirty;
+        progressDirty = boundDirty.length >= count ? boundDirty : new boolean[count];
+        boundDirty = oldDirty;
+        progressDrawables.clear();
+        progressLayers.clear();
+
+        for (int i = 0; i < boundCount; i++) {
+            int index = boundFirst + i;
+            if (index < first || index >= first + count) {
+                recycleBar(boundDrawables.get(i), boundLayers.get(i));
+            }
+        }
+        for (int index = first; index < first + count; index++) {
+            int oldPosition = index - boundFirst;
+            if (oldPosition >= 0 && oldPosition < boundCount) {
+                SmoothCylindricalDrawable drawable = boundDrawables.get(oldPosition);
+                boolean isChanged = rankChanged[index - first];
+                progressDrawables.add(isChanged ? bindBar(drawable, index, true) : drawable);
+                progressLayers.add(boundLayers.get(oldPosition));
+                progressDirty[index - first] = isChanged || oldDirty[oldPosition];
+            } else {
+                boolean isAnimated = index >= animateFirst && index < animateEnd;
+                progressDrawables.add(bindBar(obtainDrawable(), index, isAnimated));
+                progressLayers.add(obtainLayer());
+                progressDirty[index - first] = true;
+            }
+        }
+        boundFirst = first;
+        boundDrawables.clear();
+        boundLayers.clear();
+    }
+
+    /**
+     * 把一个数据绑定到进度条上,同时设置该名次的目标进度
+     *
+     * @param drawable 进度条
+     * @param index 数据序号(按数值从大到小的排名),必须在已读取的名次范围内
+     * @param isAnimated true从当前进度动画过渡到目标进度,false直接到达
+     * @return drawable
+     */
+    private SmoothCylindricalDrawable bindBar(SmoothCylindricalDrawable drawable, int index, boolean isAnimated) {
+        int value = rankValues[index - rankFirst];
+        float percent = getPercent(value);
+        if (isAnimated) {
+            progressClock.setTarget(index, percent);
+        } else {
+            progressClock.jumpTo(index, percent);
+        }
+        drawable.setAlign(align);
+        drawable.setBounds(0, 0, getWidth(), getHeight());
+        drawable.setVisibleRect(slotRect.left, slotRect.top, slotRect.right, slotRect.bottom);
+        drawable.setTopText(String.valueOf(value));
+        drawable.setPercent(percent, false);
+        drawable.setShowPercent(progressClock.getPosition(index));
+        drawable.setProgressAlpha(getRankAlpha(index));
+        drawable.setCallback(this); // 绑定完成后再设置回调,绑定过程不触发重绘
+        return drawable;
+    }
+
+    /**
+     * 虚拟化滚动模式下画可见的进度条和图标.每个进度条在第0个位置录制显示列表,按序号平移后回放,
+     * 滚动时只改变平移量,不需要重新录制
+     *
+     * @param canvas 画布
+     */
+    private void drawVirtualBars(Canvas canvas) {
+        if (progressDrawables.isEmpty()) {
+            return;
+        }
+        int saveCount = clipViewport(canvas);
+        for (int i = 0; i < progressDrawables.size(); i++) {
+            int index = boundFirst + i;
+            drawSlotBar(canvas, i, index * pitch - scrollOffset, rankIcons[index - rankFirst]);
+        }
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * 排行榜模式下画进度条和图标.按名次从低到高画,交换名次时名次高的进度条在上面;
+     * 移动时只改变平移量,名次和数值都没有变化的进度条直接回放显示列表
+     *
+     * @param canvas 画布
+     */
+    private void drawLeaderboardBars(Canvas canvas) {
+        if (progressDrawables.isEmpty()) {
+            return;
+        }
+        int saveCount = clipViewport(canvas);
+        for (int i = progressDrawables.size() - 1; i >= 0; i--) {
+            int lane = laneOrder[i];
+            float position = progressClock.getPosition(COLUMN_COUNT + lane);
+            lanePositions[lane] = position;
+            if (laneRanks[lane] < 0 && position >= COLUMN_COUNT) { // 停用的车道已经滑出可见区域
+                continue;
             }
+            drawSlotBar(canvas, lane, position * pitch, laneIcons[lane]);
+        }
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * 把画布裁剪到进度条排列的区域
+     *
+     * @param canvas 画布
+     * @return 裁剪之前的保存层级
+     */
+    private int clipViewport(Canvas canvas) {
+        int width = getWidth();
+        int height = getHeight();
+        int saveCount = canvas.save();
+        if (isHorizontalScroll()) {
+            canvas.clipRect(width - viewportLength, 0, width, height);
+        } else {
+            canvas.clipRect(0, 0, width, viewportLength);
         }
+        return saveCount;
+    }
+
+    /**
+     * 把在第0个位置录制的进度条平移后回放
+     *
+     * @param canvas 画布
+     * @param i 进度条在progressDrawables中的序号
+     * @param offset 平移量,单位像素
+     * @param icon 进度条对应的图标
+     */
+    private void drawSlotBar(Canvas canvas, int i, float offset, Drawable icon) {
+        canvas.save();
+        if (isHorizontalScroll()) {
+            canvas.translate(offset, 0);
+        } else {
+            canvas.translate(0, offset);
+        }
+        DisplayListLayer layer = progressLayers.get(i);
+        Canvas target = layer.begin(canvas, progressDirty[i], getWidth(), getHeight());
+        if (target != null) {
+            progressDrawables.get(i).draw(target);
+            axisDrawable.drawIcon(target, icon, slotIconPosition);
+        }
+        layer.end(canvas);
+        canvas.restore();
+        progressDirty[i] = false;
+    }
+
+    /**
+     * 依附上下时横向排列、横向滚动;依附左右时纵向排列、纵向滚动
+     */
+    private boolean isHorizontalScroll() {
+        return align != Gravity.LEFT && align != Gravity.RIGHT;
+    }
+
+    private float getMaxScrollOffset() {
+        return Math.max(0, rankCount * pitch - viewportLength);
+    }
+
+    /**
+     * @return true内容超出可见区域,可以滚动
+     */
+    private boolean isScrollable() {
+        return getMaxScrollOffset() > 0;
     }
 
     /**
      * 把原始数据转化为Drawable可用的数据
      */
     private void convertData() {
-        if (originData == null || originData.isEmpty()) {
+        if (rankCount == 0) {
             return;
         }
         int width = getWidth();
@@ -199,7 +1234,7 @@ public class SmoothCylindricalView extends View {
                 paddingAxisTextPixel = height * paddingAxisText;
                 paddingIconPixel = width * paddingIcon;
                 divide = (height - paddingAxisTextPixel) / COLUMN_COUNT - progressWidth;
-                for (int i = 0; i < COLUMN_COUNT && i < originData.size(); i++) {
+                for (int i = 0; i < progressDrawables.size(); i++) {
                     SmoothCylindricalDrawable drawable = progressDrawables.get(i);
                     drawable.setBounds(0, 0, width, height);
                     float top = (progressWidth + divide) * i + divide / 2;
@@ -216,7 +1251,7 @@ public class SmoothCylindricalView extends View {
                     drawable.setVisibleRect(left, top, right, bottom);
 
                     float percentInAxis = ((bottom + top) / 2) / (height - paddingAxisTextPixel);
-                    iconData.add(new Pair<>(percentInAxis, originData.get(i).second));
+                    iconData.add(new Pair<>(percentInAxis, rankIcons[i]));
                 }
                 break;
             case Gravity.TOP:
@@ -226,7 +1261,7 @@ public class SmoothCylindricalView extends View {
                 paddingAxisTextPixel = width * paddingAxisText;
                 paddingIconPixel = height * paddingIcon;
                 divide = (width - paddingAxisTextPixel) / COLUMN_COUNT - progressWidth;
-                for (int i = 0; i < COLUMN_COUNT && i < originData.size(); i++) {
+                for (int i = 0; i < progressDrawables.size(); i++) {
                     SmoothCylindricalDrawable drawable = progressDrawables.get(i);
                     drawable.setBounds(0, 0, width, height);
                     float left = paddingAxisTextPixel + (progressWidth + divide) * i + divide / 2;
@@ -244,7 +1279,7 @@ public class SmoothCylindricalView extends View {
 
                     float percentInAxis =
                             ((right + left) / 2 - paddingAxisTextPixel) / (width - paddingAxisTextPixel);
-                    iconData.add(new Pair<>(percentInAxis, originData.get(i).second));
+                    iconData.add(new Pair<>(percentInAxis, rankIcons[i]));
                 }
                 break;
         }
@@ -252,36 +1287,79 @@ public class SmoothCylindricalView extends View {
         axisDrawable.setIconData(iconData);
         axisDrawable.setIconSize(paddingIconPixel, progressWidth * 1.2f);
 
-        // 从原始数据中提取原始数值集合
-        List<Integer> originValues = null;
-        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.N) {
-            originValues = originData.stream().map(it -> it.first).collect(Collectors.toList());
+        updateAxisData();
+
+        progressClock.setSize(progressDrawables.size());
+        for (int i = 0; i < progressDrawables.size(); i++) {
+            SmoothCylindricalDrawable drawable = progressDrawables.get(i);
+            float percent = getPercent(rankValues[i]);
+            progressClock.setTarget(i, percent);
+            drawable.setPercent(percent, false);
+            drawable.setShowPercent(progressClock.getPosition(i));
+            drawable.setProgressAlpha(1 - 0.2f * i);
+        }
+    }
+
+    /**
+     * 动画时钟每帧回调:把各进度的当前值交给可见的进度条,只有值有变化的进度条重新绘制;
+     * 排行榜模式下进度条按车道取值,位置有变化时也需要重绘
+     */
+    private void onProgressFrame() {
+        boolean isChanged = false;
+        for (int i = 0; i < progressDrawables.size(); i++) {
+            int index = isVirtualized ? boundFirst + i : i;
+            if (progressDrawables.get(i).setShowPercent(progressClock.getPosition(index))) {
+                progressDirty[i] = true;
+                isChanged = true;
+            }
+            if (isLeaderboardActive() && progressClock.getPosition(COLUMN_COUNT + i) != lanePositions[i]) {
+                isChanged = true; // 只有位置变化时不需要重新录制,绘制时改变平移量
+            }
+        }
+        if (isChanged) {
+            invalidate();
+        }
+    }
+
+    /**
+     * 根据当前排名中的数值计算坐标轴需要显示的刻度和范围,交给坐标轴.最大值和最小值没有变化时保留原来的刻度,
+     * 不重新分配刻度数据
+     */
+    private void updateAxisData() {
+        // 排名按数值从大到小排列,最大值和最小值就是第一名和最后一名,不需要遍历(虚拟化滚动模式下只读取了可见的一段名次)
+        float max = selector.getValue(0);
+        float min = selector.getValue(rankCount - 1);
+        if (axisRange != null && max == axisMax && min == axisMin) { // 刻度只取决于最大值和最小值
+            return;
         }
+        axisMax = max;
+        axisMin = min;
 
         // 计算得到坐标轴需要显示的刻度数值的集合
-        List<Integer> marks = getMarks(originValues);
+        List<Integer> marks = getMarks(min, max);
 
         // 计算得到坐标轴需要显示的各个刻度及其位置
-        List<Pair<Float, String>> textData = null;
-        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.N) {
-            textData = marks.stream()
-                    .map(it -> new Pair<Float, String>((float) it, String.valueOf(it))).collect(Collectors.toList());
+        List<Pair<Float, String>> textData = new ArrayList<>(marks.size());
+        for (Integer mark : marks) {
+            textData.add(new Pair<>((float) mark, String.valueOf(mark)));
         }
 
-        // 根据原始数据计算坐标轴需要显示的范围
-        Range<Float> axisRange = getRange(originValues);
+        // 根据刻度计算坐标轴需要显示的范围
+        axisRange = getRange(marks);
         axisDrawable.setCylindricalData(textData, axisRange);
+    }
 
-        for (int i = 0; i < originData.size(); i++) {
-            int value = originData.get(i).first;
-            float percent = (value - axisRange.getLower()) / (axisRange.getUpper() - axisRange.getLower());
-            progressDrawables.get(i).setPercent(percent, false);
-            progressDrawables.get(i).setProgressAlpha(1 - 0.2f * i);
-        }
+    /**
+     * 数值在坐标轴范围内的百分比
+     *
+     * @param value 数值
+     * @return 进度条百分比
+     */
+    private float getPercent(int value) {
+        return (value - axisRange.getLower()) / (axisRange.getUpper() - axisRange.getLower());
     }
 
-    private static Range<Float> getRange(List<Integer> data) {
-        List<Integer> marks = getMarks(data);
+    private static Range<Float> getRange(List<Integer> marks) {
         float startMark = marks.isEmpty() ? 0 : marks.get(0);
         float endMark = marks.isEmpty() ? (startMark + 1) : marks.get(marks.size() - 1);
 
@@ -289,9 +1367,7 @@ public class SmoothCylindricalView extends View {
         return new Range<Float>(startMark, endValue);
     }
 
-    private static List<Integer> getMarks(List<Integer> data) {
-        float max = Collections.max(data);
-        float min = Collections.min(data);
+    private static List<Integer> getMarks(float min, float max) {
         float threshold = (max - min);
         float divide = threshold / 3; // 粒度
         int zero = 0; // 位数统计(几个0)
@@ -302,6 +1378,9 @@ public class SmoothCylindricalView extends View {
         }
         int num = (int) Math.ceil(tmp);
         num *= Math.pow(10, zero); // 粒度
+        if (num <= 0) { // 所有数值相同
+            num = 1;
+        }
         int maxMark = (int) Math.ceil(max / num);
         int minMark = (int) Math.ceil(min / num);
 
@@ -310,12 +1389,9 @@ public class SmoothCylindricalView extends View {
             beginMark = 0;
         }
         List<Integer> marks = new ArrayList<>();
-        for (int i = beginMark; i <= maxMark; i++) {
+        for (int i = beginMark; i <= maxMark; i++) { // 从小到大
             marks.add(i * num);
         }
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-            marks.sort(Integer::compareTo);
-        }
 
         return marks;
     }
@@ -327,6 +1403,102 @@ public class SmoothCylindricalView extends View {
      */
     public void setAlign(int align) {
         this.align = align;
+        axisDrawable.setAlign(align);
+        for (SmoothCylindricalDrawable drawable : progressDrawables) {
+            drawable.setAlign(align);
+        }
+        isLayoutDirty = true;
         postInvalidate();
     }
+
+    /**
+     * 设置是否使用虚拟化滚动模式.滚动模式下显示全部数据,按固定间距排列,只为可见的数据创建(复用)进度条
+     *
+     * @param isVirtualized true虚拟化滚动模式,false只显示前COLUMN_COUNT个数据
+     */
+    public void setVirtualized(boolean isVirtualized) {
+        if (this.isVirtualized == isVirtualized) {
+            return;
+        }
+        this.isVirtualized = isVirtualized;
+        scroller.forceFinished(true);
+        isFlinging = false;
+        scrollOffset = 0;
+        selector.setCapacity(isVirtualized ? Integer.MAX_VALUE : COLUMN_COUNT);
+        readRanking();
+        if (isLeaderboardMode) {
+            progressClock.setSize(0);
+        }
+        rebuildBars();
+    }
+
+    public boolean isVirtualized() {
+        return isVirtualized;
+    }
+
+    /**
+     * 设置是否使用排行榜模式.排行榜模式下每个键固定使用同一个进度条,名次变化时进度条滑动到新的位置,
+     * 进度同时过渡到新的数值,名次和数值都没有变化的进度条不重新绘制.虚拟化滚动模式下不生效
+     *
+     * @param isLeaderboardMode true排行榜模式,false每次按名次重新绑定进度条
+     */
+    public void setLeaderboardMode(boolean isLeaderboardMode) {
+        if (this.isLeaderboardMode == isLeaderboardMode) {
+            return;
+        }
+        this.isLeaderboardMode = isLeaderboardMode;
+        if (!isVirtualized) {
+            progressClock.setSize(0); // 两种模式下时钟序号的含义不同
+            rebuildBars();
+        }
+    }
+
+    public boolean isLeaderboardMode() {
+        return isLeaderboardMode;
+    }
+
+    private boolean isLeaderboardActive() {
+        return isLeaderboardMode && !isVirtualized;
+    }
+
+    /**
+     * 设置虚拟化滚动模式下的进度条间距(进度条粗细加间隔)
+     *
+     * @param barPitch 间距,单位像素;<=0时与非滚动模式下COLUMN_COUNT个进度条的间距相同
+     */
+    public void setBarPitch(float barPitch) {
+        if (this.barPitch != barPitch) {
+            this.barPitch = barPitch;
+            isLayoutDirty = true;
+            invalidate();
+        }
+    }
+
+    /**
+     * 设置虚拟化滚动模式下的滚动距离
+     *
+     * @param scrollOffset 滚动距离,单位像素,超出范围时取边界值
+     */
+    public void setScrollOffset(float scrollOffset) {
+        float offset = isLayoutDirty ? Math.max(0, scrollOffset) // 布局之前不知道滚动范围,布局时再限制
+                : Math.max(0, Math.min(scrollOffset, getMaxScrollOffset()));
+        if (this.scrollOffset != offset) {
+            this.scrollOffset = offset;
+            invalidate();
+        }
+    }
+
+    public float getScrollOffset() {
+        return scrollOffset;
+    }
+
+    /**
+     * 设置进度条变化动效播放时间.数据变化时各进度条由同一个动画时钟推进,运动途中再次变化时保留当前速度转向新的目标值
+     *
+     * @param duration 动画时长,单位毫秒.此参数<=0的时候没有动画
+     */
+    public void setProgressDuration(long duration) {
+        progressDuration = duration;
+        progressClock.setDuration(duration);
+    }
 }
\ No newline at end of file
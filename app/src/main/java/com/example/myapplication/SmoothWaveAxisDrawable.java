@@ -7,7 +7,6 @@ import android.graphics.DashPathEffect;
 import android.graphics.Paint;
 import android.graphics.PixelFormat;
 import android.graphics.Rect;
-import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
 import android.util.Pair;
 import android.util.Range;
@@ -25,7 +24,10 @@ import androidx.annotation.IntRange;
  */
 public class SmoothWaveAxisDrawable extends Drawable {
     private final Paint paint = new Paint();
-    private final RectF boundRectF = new RectF();
+    /**
+     * 整体透明度、颜色滤镜和绘制方式,决定是否需要离屏图层
+     */
+    private final RenderModeLayer renderLayer = new RenderModeLayer();
     private final Rect axisArea = new Rect();
     private final DashPathEffect dashEffect = new DashPathEffect(new float[]{10, 10}, 0);
     private final int textColor = Color.GRAY;
@@ -40,12 +42,23 @@ public class SmoothWaveAxisDrawable extends Drawable {
      * 画面上要展示的Y坐标轴范围(基于原始数据)
      */
     private Range<Float> axisYRange;
+    /**
+     * 手势过程中要显示的X/Y坐标轴范围,NaN表示使用axisXRange/axisYRange.直接修改这几个数值,手势每次移动都不需要创建新的Range
+     */
+    private float gestureXLower = Float.NaN;
+    private float gestureXUpper = Float.NaN;
+    private float gestureYLower = Float.NaN;
+    private float gestureYUpper = Float.NaN;
 
     private List<Pair<String, Float>> originDataX;
     private List<Pair<String, Float>> originDataY;
 
     @IntRange(from = -1)
     private int focusIndex = -1;
+    /**
+     * 是否由外部单独绘制焦点辅助线(焦点覆盖层),此时draw()中所有辅助线都画成虚线
+     */
+    private boolean isFocusDeferred;
 
     public SmoothWaveAxisDrawable() {
         paint.setAntiAlias(true);
@@ -63,8 +76,7 @@ public class SmoothWaveAxisDrawable extends Drawable {
         if (axisXRange == null || axisYRange == null) {
             return;
         }
-        boundRectF.set(getBounds());
-        int layoutId = canvas.saveLayer(boundRectF, paint, Canvas.ALL_SAVE_FLAG);
+        int layoutId = renderLayer.save(canvas, getBounds());
         canvas.translate(axisArea.left, axisArea.top);
 
         convertData();
@@ -80,20 +92,26 @@ public class SmoothWaveAxisDrawable extends Drawable {
         dataPositionX.clear();
         dataPositionY.clear();
         if (originDataX != null && !originDataX.isEmpty() && axisXRange != null) {
-            float scaleX = axisArea.width() / (axisXRange.getUpper() - axisXRange.getLower());
+            boolean isGesture = !Float.isNaN(gestureXLower);
+            float lowerX = isGesture ? gestureXLower : axisXRange.getLower();
+            float upperX = isGesture ? gestureXUpper : axisXRange.getUpper();
+            float scaleX = axisArea.width() / (upperX - lowerX);
 
             for (Pair<String, Float> item : originDataX) {
                 float originData = item.second;
-                float pixelData = (originData - axisXRange.getLower()) * scaleX;
+                float pixelData = (originData - lowerX) * scaleX;
                 dataPositionX.add(pixelData);
             }
         }
         if (originDataY != null && !originDataY.isEmpty() && axisYRange != null) {
-            float scaleY = axisArea.height() / (axisYRange.getUpper() - axisYRange.getLower());
+            boolean isGesture = !Float.isNaN(gestureYLower);
+            float lowerY = isGesture ? gestureYLower : axisYRange.getLower();
+            float upperY = isGesture ? gestureYUpper : axisYRange.getUpper();
+            float scaleY = axisArea.height() / (upperY - lowerY);
 
             for (Pair<String, Float> item : originDataY) {
                 float originData = item.second;
-                float pixelData = (originData - axisYRange.getLower()) * scaleY;
+                float pixelData = (originData - lowerY) * scaleY;
                 pixelData = axisArea.height() - pixelData;
                 dataPositionY.add(pixelData);
             }
@@ -148,7 +166,7 @@ public class SmoothWaveAxisDrawable extends Drawable {
             if (pixelX < 0 || pixelX > axisArea.width()) {
                 continue;
             }
-            if (focusIndex == i) {
+            if (focusIndex == i && !isFocusDeferred) {
                 paint.setPathEffect(null);
             } else {
                 paint.setPathEffect(dashEffect);
@@ -158,14 +176,77 @@ public class SmoothWaveAxisDrawable extends Drawable {
         paint.setPathEffect(null);
     }
 
+    /**
+     * 单独画出焦点辅助线(焦点覆盖层),画布不需要预先平移.使用上一次draw()计算的刻度位置
+     *
+     * @param canvas 画布
+     */
+    void drawFocusOverlay(Canvas canvas) {
+        if (focusIndex < 0 || focusIndex >= dataPositionX.size()) {
+            return;
+        }
+        float pixelX = dataPositionX.get(focusIndex);
+        if (pixelX < 0 || pixelX > axisArea.width()) {
+            return;
+        }
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setColor(textColor);
+        paint.setPathEffect(null);
+        canvas.drawLine(axisArea.left + pixelX, axisArea.top, axisArea.left + pixelX, axisArea.bottom, paint);
+    }
+
+    /**
+     * 获取焦点辅助线所在区域(与getBounds()同一个坐标系),用于只重绘焦点变化的区域
+     *
+     * @param out 输出
+     * @return false没有焦点辅助线
+     */
+    boolean getFocusBounds(Rect out) {
+        if (focusIndex < 0 || focusIndex >= dataPositionX.size()) {
+            return false;
+        }
+        float pixelX = dataPositionX.get(focusIndex);
+        if (pixelX < 0 || pixelX > axisArea.width()) {
+            return false;
+        }
+        int halfWidth = (int) Math.ceil(paint.getStrokeWidth() / 2) + 1; // 多留1像素给抗锯齿
+        int centerX = axisArea.left + (int) pixelX;
+        out.set(centerX - halfWidth, axisArea.top, centerX + halfWidth + 1, axisArea.bottom);
+        return true;
+    }
+
+    void setFocusDeferred(boolean isFocusDeferred) {
+        this.isFocusDeferred = isFocusDeferred;
+    }
+
     @Override
     public void setAlpha(int alpha) {
+        if (renderLayer.setAlpha(alpha)) {
+            invalidateSelf();
+        }
+    }
 
+    @Override
+    public int getAlpha() {
+        return renderLayer.getAlpha();
     }
 
     @Override
     public void setColorFilter(ColorFilter colorFilter) {
+        if (renderLayer.setColorFilter(colorFilter)) {
+            invalidateSelf();
+        }
+    }
 
+    /**
+     * 设置绘制方式.默认RENDER_MODE_AUTO
+     *
+     * @param renderMode 绘制方式
+     */
+    public void setRenderMode(@SmoothWaveDrawable.RenderMode int renderMode) {
+        if (renderLayer.setRenderMode(renderMode)) {
+            invalidateSelf();
+        }
     }
 
     @Override
@@ -177,6 +258,28 @@ public class SmoothWaveAxisDrawable extends Drawable {
         this.focusIndex = focusIndex;
     }
 
+    /**
+     * 查找X轴上离dataX最近的刻度序号.刻度个数很少,直接遍历
+     *
+     * @param dataX X坐标(基于原始数据)
+     * @return 刻度序号,没有刻度时返回-1
+     */
+    int findNearestIndex(float dataX) {
+        if (originDataX == null) {
+            return -1;
+        }
+        int nearest = -1;
+        float minDistance = Float.MAX_VALUE;
+        for (int i = 0; i < originDataX.size(); i++) {
+            float distance = Math.abs(originDataX.get(i).second - dataX);
+            if (distance < minDistance) {
+                minDistance = distance;
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
     public void setAxisArea(Rect axisArea) {
         this.axisArea.set(axisArea);
     }
@@ -201,6 +304,34 @@ public class SmoothWaveAxisDrawable extends Drawable {
         invalidateSelf();
     }
 
+    /**
+     * 设置手势过程中要显示的X轴范围,只修改数值不创建Range
+     *
+     * @param lower X轴范围下限,NaN表示使用axisXRange
+     * @param upper X轴范围上限
+     */
+    void setGestureXRange(float lower, float upper) {
+        if (Float.compare(gestureXLower, lower) != 0 || Float.compare(gestureXUpper, upper) != 0) {
+            gestureXLower = lower;
+            gestureXUpper = upper;
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * 设置手势过程中要显示的Y轴范围,只修改数值不创建Range
+     *
+     * @param lower Y轴范围下限,NaN表示使用axisYRange
+     * @param upper Y轴范围上限
+     */
+    void setGestureYRange(float lower, float upper) {
+        if (Float.compare(gestureYLower, lower) != 0 || Float.compare(gestureYUpper, upper) != 0) {
+            gestureYLower = lower;
+            gestureYUpper = upper;
+            invalidateSelf();
+        }
+    }
+
     public Range<Float> getAxisXRange() {
         return axisXRange;
     }
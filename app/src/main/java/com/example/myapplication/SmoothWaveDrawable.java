@@ -1,29 +1,34 @@
 package com.example.myapplication;
 
+import android.animation.ValueAnimator;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.ColorFilter;
 import android.graphics.LinearGradient;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PixelFormat;
 import android.graphics.PointF;
-import android.graphics.RectF;
+import android.graphics.Rect;
 import android.graphics.Shader;
 import android.graphics.drawable.Drawable;
-import android.os.Build;
-import android.util.ArrayMap;
-import android.util.Pair;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Range;
+import android.view.animation.DecelerateInterpolator;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.lang.annotation.Retention;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 import androidx.annotation.ColorInt;
 import androidx.annotation.FloatRange;
+import androidx.annotation.IntDef;
 import androidx.annotation.IntRange;
-import androidx.annotation.RequiresApi;
+
+import static java.lang.annotation.RetentionPolicy.SOURCE;
 
 /**
  * 项目：  My Application
@@ -35,20 +40,214 @@ public class SmoothWaveDrawable extends Drawable {
     public static final int MASK_HEX_2 = 0xff;
     public static final int MASK_HEX_6 = 0xffffff;
     public static final int BIN_LENGTH_24 = 24;
+    /**
+     * 不降采样
+     */
+    public static final int DOWNSAMPLE_NONE = 0;
+    /**
+     * LTTB降采样,适合实时追加的数据
+     */
+    public static final int DOWNSAMPLE_LTTB = 1;
+    /**
+     * 多分辨率最小/最大/平均值索引,适合在很长的历史数据上缩放
+     */
+    public static final int DOWNSAMPLE_PYRAMID = 2;
+    /**
+     * 自动选择:只有需要整体透明度或颜色滤镜时才使用离屏图层,否则直接绘制
+     */
+    public static final int RENDER_MODE_AUTO = 0;
+    /**
+     * 直接绘制到目标画布上,只做save/clipRect/translate,不分配离屏图层
+     */
+    public static final int RENDER_MODE_DIRECT = 1;
+    /**
+     * 总是先绘制到离屏图层,再整体合成到目标画布上
+     */
+    public static final int RENDER_MODE_LAYER = 2;
     private static final float SLOP_RATE = 0.4f;
+    /**
+     * 辅助点缓冲区中每个基准点占用的float个数:左辅助点X,左辅助点Y,右辅助点X,右辅助点Y
+     */
+    static final int ASSIST_STRIDE = 4;
+    static final int ASSIST_LEFT_X = 0;
+    static final int ASSIST_LEFT_Y = 1;
+    static final int ASSIST_RIGHT_X = 2;
+    static final int ASSIST_RIGHT_Y = 3;
+    /**
+     * 降采样时每个像素默认保留的数据点个数
+     */
+    private static final float DEFAULT_POINTS_PER_PIXEL = 1.0f;
+    /**
+     * 实时模式下像素坐标相对基准点的最大偏移,超过后重新选取基准点,避免float精度不足
+     */
+    private static final float STREAM_REBASE_PIXELS = 100000f;
+    /**
+     * 在贝塞尔曲线上二分查找参数t的次数,20次后t的误差小于1e-6,足够float精度
+     */
+    private static final int CURVE_SEARCH_ITERATIONS = 20;
     private final Paint paint = new Paint();
-    private final Path path = new Path();
-    private final Path wavePath = new Path();
-    private final RectF boundRectF = new RectF();
     /**
-     * 要展示的数据(需要基于原始数据经过转换,基于当前drawable上的像素点坐标系)
+     * 当前用于绘制的几何结果(像素转换参数、可见范围、波形线条/填充/包络带的Path)
+     */
+    private WaveGeometry geometry = new WaveGeometry();
+    /**
+     * 后台计算模式下交给工作线程计算的另一份几何结果,算完后在UI线程与geometry交换
+     */
+    private WaveGeometry pendingGeometry = new WaveGeometry();
+    /**
+     * 填充渐变色的本地变换矩阵.渐变色本身是从Y=0到Y=1的单位渐变,通过矩阵缩放平移到实际位置
+     */
+    private final Matrix waveShaderMatrix = new Matrix();
+    /**
+     * 填充渐变色,只在渐变色值变化时(setWaveColorStart)重新创建
+     */
+    private Shader waveShader;
+    /**
+     * 当前渐变色矩阵对应的起点Y坐标和终点Y坐标,两者都没变时不需要更新矩阵
+     */
+    private float waveShaderStartY = Float.NaN;
+    private float waveShaderEndY = Float.NaN;
+    /**
+     * 整体透明度、颜色滤镜和绘制方式,决定是否需要离屏图层
      */
-    private List<PointF> showData;
-    private ArrayMap<PointF, Pair<PointF, PointF>> assistPointData;
+    private final RenderModeLayer renderLayer = new RenderModeLayer();
     /**
      * 外部输入的原始数据
      */
-    private List<PointF> originData;
+    private final WaveSeries originSeries = new WaveSeries();
+    /**
+     * 几何计算用的临时缓冲区(要展示的数据点像素坐标、辅助点等).多条波形同时绘制时可以共用一份
+     */
+    private WaveBuffers buffers = new WaveBuffers();
+    /**
+     * 临时缓冲区是否与其他波形共用.共用时缓冲区中的内容在几何计算之后可能被其他波形覆盖
+     */
+    private boolean isBuffersShared;
+    /**
+     * LTTB降采样,可见数据点远多于像素点时使用
+     */
+    private final LttbDownsampler downsampler = new LttbDownsampler();
+    /**
+     * 多分辨率最小/最大/平均值索引
+     */
+    private final WavePyramid pyramid = new WavePyramid();
+
+    /**
+     * 降采样方式可选值
+     */
+    @IntDef({DOWNSAMPLE_NONE, DOWNSAMPLE_LTTB, DOWNSAMPLE_PYRAMID})
+    @Retention(SOURCE)
+    public @interface DownsampleMode {
+    }
+
+    /**
+     * 降采样方式
+     */
+    @DownsampleMode
+    private int downsampleMode = DOWNSAMPLE_NONE;
+    /**
+     * 多分辨率索引模式下是否画出桶内最小/最大值包络带
+     */
+    private boolean isEnvelopeEnabled = false;
+    /**
+     * 降采样时每个像素保留的数据点个数
+     */
+    private float downsamplePointsPerPixel = DEFAULT_POINTS_PER_PIXEL;
+
+    /**
+     * 绘制方式可选值
+     */
+    @IntDef({RENDER_MODE_AUTO, RENDER_MODE_DIRECT, RENDER_MODE_LAYER})
+    @Retention(SOURCE)
+    public @interface RenderMode {
+    }
+
+    /**
+     * 所有波形共用的几何计算工作线程,第一次使用时才创建
+     */
+    private static final class GeometryExecutorHolder {
+        private static final Executor EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SmoothWaveGeometry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 实时模式下的像素点X坐标,按WaveSeries.getSlot()的位置保存,追加数据时已有的数据点不需要移动
+     */
+    private float[] streamXs = new float[0];
+    /**
+     * 实时模式下的像素点Y坐标,按WaveSeries.getSlot()的位置保存
+     */
+    private float[] streamYs = new float[0];
+    /**
+     * 实时模式下的辅助点,按WaveSeries.getSlot() * ASSIST_STRIDE的位置保存
+     */
+    private float[] streamAssistPoints = new float[0];
+    /**
+     * 实时模式下X轴窗口宽度(基于原始数据),<=0表示不自动滑动
+     */
+    private float streamWindowWidth;
+    /**
+     * 追加数据后X轴窗口是否需要滑动到最新数据点
+     */
+    private boolean isStreamWindowDirty;
+    /**
+     * 实时模式下已经转换过的数据的绝对结束序号(不包含)
+     */
+    private int streamBuiltEnd;
+    /**
+     * 实时模式下已经转换过的数据的重置版本号
+     */
+    private int streamBuiltResetVersion = -1;
+    /**
+     * 绘制时X方向额外的平移量.实时模式下像素坐标相对固定的基准点计算,窗口滑动只改变平移量
+     */
+    private float drawOffsetX;
+    /**
+     * 手势缩放/平移过程中,可见范围左右两侧额外转换的数据宽度(相对可见范围宽度的倍数),平移时边缘不会露出空白
+     */
+    private float cullOverscan;
+    /**
+     * 手势过程中X方向的缩放比例和平移量(像素),作用在已经算好的Path上,不重新计算几何结果
+     */
+    private float gestureScaleX = 1f;
+    private float gestureTranslateX;
+    /**
+     * 手势变换矩阵,在prepareDraw()中根据手势缩放/平移量和drawOffsetX计算
+     */
+    private final Matrix gestureMatrix = new Matrix();
+    /**
+     * 手势过程中要显示的Y轴范围(基于原始数据),NaN表示保持几何结果的Y轴范围
+     */
+    private float gestureYLower = Float.NaN;
+    private float gestureYUpper = Float.NaN;
+    /**
+     * 手势变换矩阵中Y方向的缩放比例和平移量,把几何结果的Y轴范围映射到gestureYLower~gestureYUpper
+     */
+    private float gestureMatrixScaleY = 1f;
+    private float gestureMatrixTranslateY;
+    /**
+     * 本帧是否需要应用手势变换,在prepareDraw()中计算
+     */
+    private boolean isGestureTransformed;
+    /**
+     * 手势过程中变换后的线条.线条不能直接通过canvas.concat()缩放,否则线宽会跟着被拉伸
+     */
+    private final Path gesturePath = new Path();
+    /**
+     * 计算触摸点处曲线Y时用的辅助点,两个基准点各占ASSIST_STRIDE个float.跨调用复用
+     */
+    private final float[] curveAssistPoints = new float[ASSIST_STRIDE * 2];
+    /**
+     * 焦点圆点圆心.跨帧复用
+     */
+    private final float[] focusCenter = new float[2];
+    /**
+     * 是否由外部单独绘制焦点圆点(焦点覆盖层)
+     */
+    private boolean isFocusDeferred;
     /**
      * 画面上要展示的X坐标轴范围(基于原始数据)
      */
@@ -57,8 +256,44 @@ public class SmoothWaveDrawable extends Drawable {
      * 画面上要展示的Y坐标轴范围(基于原始数据)
      */
     private Range<Float> axisYRange;
-    private float minDataY = 0;
-    private float maxDataY = 600;
+
+    /**
+     * 几何输入(坐标轴范围、边界、线宽)的版本号,任何一项变化都会递增
+     */
+    private int geometryVersion;
+    /**
+     * 当前缓存的像素点、辅助点和Path是基于哪个版本的几何输入计算的,-1表示还没有计算过
+     */
+    private int builtGeometryVersion = -1;
+    /**
+     * 当前缓存的像素点、辅助点和Path是基于哪个版本的原始数据计算的
+     */
+    private int builtSeriesVersion = -1;
+    /**
+     * 几何缓存重建次数(调试和测试用)
+     */
+    private int geometryBuildCount;
+    /**
+     * 几何缓存命中次数(调试和测试用)
+     */
+    private int geometryCacheHitCount;
+    /**
+     * 是否在工作线程计算几何结果
+     */
+    private boolean isAsyncGeometryEnabled;
+    /**
+     * 计算几何结果的工作线程,为null时使用所有波形共用的单线程
+     */
+    private Executor geometryExecutor;
+    /**
+     * 后台计算专用的临时缓冲区,计算期间归工作线程所有,不能与其他波形共用
+     */
+    private final WaveBuffers asyncBuffers = new WaveBuffers();
+    /**
+     * 是否有正在工作线程计算的几何结果
+     */
+    private boolean isGeometryPending;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     /**
      * 波形渐变色的各节点透明度
@@ -89,6 +324,12 @@ public class SmoothWaveDrawable extends Drawable {
     @FloatRange(from = 0f, to = 1.0f)
     private final float focusDotBgAlpha = 0.3f;
 
+    /**
+     * 最小/最大值包络带透明度
+     */
+    @FloatRange(from = 0f, to = 1.0f)
+    private final float envelopeAlpha = 0.2f;
+
     /**
      * 是否画出辅助点(仅调试用)
      */
@@ -120,238 +361,1301 @@ public class SmoothWaveDrawable extends Drawable {
     @ColorInt
     private int waveColorStart = Color.RED;
 
+    /**
+     * 数据过渡动画.重采样和插值用的数组跨动画复用
+     */
+    private final WaveMorph morph = new WaveMorph();
+    private ValueAnimator morphAnimator;
+    /**
+     * 数据和坐标轴范围的setter只记录新状态,每帧最多刷新一次.几何结果在绘制时才按最新状态计算,没有显示出来的中间状态不会计算
+     */
+    private final FrameUpdateScheduler invalidateScheduler = new FrameUpdateScheduler(this::invalidateSelf);
+    /**
+     * 内容版本号,数据和坐标轴范围的setter中同步递增.刷新请求要到下一帧才回调,
+     * 外部缓存了绘制结果(显示列表)时按版本号判断内容是否变化,本帧被其他原因触发绘制时也不会回放旧内容
+     */
+    private int contentVersion;
+
     public SmoothWaveDrawable() {
         paint.setAntiAlias(true);
         setWaveColorStart(waveColorStart);
         setLineColor(lineColor);
     }
 
-    @RequiresApi(api = Build.VERSION_CODES.N)
-    private void convertData() {
-        if (originData == null || originData.isEmpty() || axisXRange == null || axisYRange == null) {
-            showData = Collections.emptyList();
+    /**
+     * 如果原始数据或几何输入发生了变化,则重新计算像素点、辅助点以及波形线条和填充的Path;否则复用上次的结果
+     */
+    private void ensureGeometry() {
+        if (builtGeometryVersion == geometryVersion && builtSeriesVersion == originSeries.getVersion()) {
+            geometryCacheHitCount++;
             return;
         }
-        int width = getBounds().width();
-        int height = getBounds().height() - lineStrokeWidth;
-        float scaleX = width / (axisXRange.getUpper() - axisXRange.getLower()); // 原始数据X轴每1个单位占几个像素点
-        float scaleY = height / (axisYRange.getUpper() - axisYRange.getLower()); // 原始数据Y轴每1个单位占几个像素点
-        showData = new ArrayList<>();
-        for (PointF pointF : originData) {
-            float pixelX = (pointF.x - axisXRange.getLower()) * scaleX;
-            float pixelY = (pointF.y - axisYRange.getLower()) * scaleY;
-            pixelY = height - pixelY + lineStrokeWidth / 2f;
-            showData.add(new PointF(pixelX, pixelY));
+        if (isAsyncGeometryEnabled) {
+            requestGeometry();
+            return;
         }
-        assistPointData = calAssistPoints(showData);
-        if (showData != null && !showData.isEmpty()) {
-            minDataY = showData.stream().map(it -> it.y).min(Float::compare).orElse(0f);
-            maxDataY = showData.stream().map(it -> it.y).max(Float::compare).orElse(maxDataY);
+        convertData(geometry, buffers);
+        geometry.build(buffers);
+        builtGeometryVersion = geometryVersion;
+        builtSeriesVersion = originSeries.getVersion();
+        geometryBuildCount++;
+    }
+
+    /**
+     * 后台计算:在UI线程把可见范围内(降采样后)的数据拷贝到后台专用缓冲区,
+     * 在工作线程做像素转换、辅助点计算和Path生成.计算期间继续绘制上一次的结果
+     */
+    private void requestGeometry() {
+        if (isGeometryPending) {
+            return; // 正在计算的结果交换回来之后会重绘,那时再检查一次版本号
         }
+        final WaveGeometry target = pendingGeometry;
+        convertData(target, asyncBuffers);
+        target.geometryVersion = geometryVersion;
+        target.seriesVersion = originSeries.getVersion();
+        isGeometryPending = true;
+        Executor executor = geometryExecutor != null ? geometryExecutor : GeometryExecutorHolder.EXECUTOR;
+        executor.execute(() -> {
+            target.build(asyncBuffers);
+            mainHandler.post(() -> publishGeometry(target));
+        });
     }
 
-    @RequiresApi(api = Build.VERSION_CODES.N)
-    @Override
-    public void draw(Canvas canvas) {
-        convertData();
-        if (showData == null || showData.isEmpty()) {
-            return;
+    /**
+     * 在UI线程交换工作线程算好的几何结果,并触发重绘
+     *
+     * @param built 算好的几何结果
+     */
+    private void publishGeometry(WaveGeometry built) {
+        isGeometryPending = false;
+        if (!isStreamGeometryEnabled()) { // 期间切换到了实时模式时丢弃,实时模式直接使用geometry
+            pendingGeometry = geometry;
+            geometry = built;
+            builtGeometryVersion = built.geometryVersion;
+            builtSeriesVersion = built.seriesVersion;
+            geometryBuildCount++;
         }
-        if (assistPointData == null || assistPointData.isEmpty()) {
+        invalidateSelf();
+    }
+
+    /**
+     * 计算转换参数和可见范围,并把要展示的数据点(降采样后)的原始坐标写入缓冲区,像素转换在WaveGeometry.build()中完成.
+     * 会读取原始数据、降采样和多分辨率索引,只能在UI线程调用
+     *
+     * @param target 几何结果
+     * @param out 缓冲区
+     */
+    private void convertData(WaveGeometry target, WaveBuffers out) {
+        target.reset();
+        target.isEnvelopeEnabled = isEnvelopeEnabled;
+        int size = originSeries.size();
+        if (size == 0 || axisXRange == null || axisYRange == null) {
             return;
         }
-        boundRectF.set(getBounds());
-        int layoutId = canvas.saveLayer(boundRectF, paint, Canvas.ALL_SAVE_FLAG);
-        canvas.translate(getBounds().left, getBounds().top);
-
-        path.reset();
-        path.moveTo(showData.get(0).x, showData.get(0).y);
+        float axisXLower = axisXRange.getLower();
+        float axisXUpper = axisXRange.getUpper();
+        int width = getBounds().width();
+        target.setTransform(axisXLower, axisXUpper, axisYRange.getLower(), axisYRange.getUpper(), width,
+                getBounds().height(), lineStrokeWidth);
 
-        wavePath.reset();
-        wavePath.moveTo(0, getBounds().height());
-        wavePath.lineTo(0, showData.get(0).y);
-        wavePath.lineTo(showData.get(0).x, showData.get(0).y);
-
-        for (int i = 0; i < showData.size() - 1; i++) {
-            PointF currP = showData.get(i);
-            PointF nextP = showData.get(i + 1);
-            PointF assistP1 = assistPointData.get(currP).second;
-            PointF assistP2 = assistPointData.get(nextP).first;
-            path.cubicTo(assistP1.x, assistP1.y, assistP2.x, assistP2.y, nextP.x, nextP.y);
-            wavePath.cubicTo(assistP1.x, assistP1.y, assistP2.x, assistP2.y, nextP.x, nextP.y);
-
-            if (isShowAssistDot) { // 画"三次贝塞尔曲线"的辅助点,调试找bug专用
-                paint.setStyle(Paint.Style.FILL);
-                paint.setStrokeWidth(lineStrokeWidth);
-                paint.setColor(assistColor);
-                canvas.drawCircle(currP.x, currP.y, lineStrokeWidth * 2, paint);
-                canvas.drawCircle(assistP1.x, assistP1.y, lineStrokeWidth * 2, paint);
-                canvas.drawCircle(assistP2.x, assistP2.y, lineStrokeWidth * 2, paint);
-                canvas.drawLine(currP.x, currP.y, assistP1.x, assistP1.y, paint);
-                canvas.drawLine(assistP2.x, assistP2.y, nextP.x, nextP.y, paint);
+        int first = 0; // 要转换的第一个数据点序号
+        int last = size - 1; // 要转换的最后一个数据点序号
+        if (originSeries.isSortedX()) { // 左右各多保留一个相邻点,保证曲线在边界处连续
+            float overscan = (axisXUpper - axisXLower) * cullOverscan;
+            first = Math.max(0, originSeries.lowerBound(axisXLower - overscan) - 1);
+            last = Math.min(size - 1, originSeries.upperBound(axisXUpper + overscan));
+        }
+        target.firstIndex = first;
+        target.lastIndex = last;
+        int count = last - first + 1;
+        int budget = Math.max(3, (int) (width * (1 + cullOverscan * 2) * downsamplePointsPerPixel)); // 降采样后最多保留的数据点个数
+        int pyramidLevel = 0;
+        if (downsampleMode == DOWNSAMPLE_PYRAMID && originSeries.isSortedX() && count > budget) {
+            pyramid.update(originSeries);
+            pyramidLevel = pyramid.chooseLevel(count, budget);
+        }
+        if (pyramidLevel > 0) {
+            target.count = convertPyramid(first, last, pyramidLevel, out);
+            target.isPyramid = true;
+        } else if (downsampleMode == DOWNSAMPLE_LTTB && originSeries.isSortedX() && count > budget) {
+            target.count = convertDownsampled(first, last, getBucketSize(count, budget), out);
+        } else {
+            out.ensureCapacity(count);
+            for (int i = 0; i < count; i++) {
+                out.xs[i] = originSeries.getX(first + i);
+                out.ys[i] = originSeries.getY(first + i);
             }
+            target.count = count;
         }
+    }
 
-        wavePath.lineTo(showData.get(showData.size() - 1).x, getBounds().height());
-        wavePath.close();
-        paint.setStyle(Paint.Style.FILL);
-        paint.setShader(new LinearGradient(0, minDataY, 0, getBounds().height() * 0.8f, waveColors,
-                waveColorPositions, Shader.TileMode.CLAMP));
-        canvas.drawPath(wavePath, paint); // 画出波形下方和X轴之间的填充色
-        paint.setShader(null);
-
-        paint.setStyle(Paint.Style.STROKE);
-        paint.setStrokeWidth(lineStrokeWidth);
-        paint.setColor(lineColor);
-        canvas.drawPath(path, paint); // 画出波形线条
-
-        if (focusIndex >= 0 && focusIndex < showData.size()) {
-            int lineAlphaInt = (lineColor >> BIN_LENGTH_24) & MASK_HEX_2;
-            int lineBaseColor = lineColor & MASK_HEX_6;
-            int focusDotFgAlphaInt = (int) (lineAlphaInt * focusDotAlpha + 0.5f);
-            int focusDotBgAlphaInt = (int) (lineAlphaInt * focusDotBgAlpha + 0.5f);
-            int focusDotFgColor = ((focusDotFgAlphaInt & MASK_HEX_2) << BIN_LENGTH_24) + lineBaseColor;
-            int focusDotBgColor = ((focusDotBgAlphaInt & MASK_HEX_2) << BIN_LENGTH_24) + lineBaseColor;
-
-            PointF focusP = showData.get(focusIndex);
-            paint.setStyle(Paint.Style.FILL);
-            paint.setColor(focusDotBgColor);
-            canvas.drawCircle(focusP.x, focusP.y, lineStrokeWidth * 4, paint);
-
-            paint.setColor(focusDotFgColor);
-            canvas.drawCircle(focusP.x, focusP.y, lineStrokeWidth * 2, paint);
+    /**
+     * 把LTTB降采样后的数据点写入缓冲区.可见范围首尾两个点总是保留,中间每个完整的桶保留一个点
+     *
+     * @param first 可见范围第一个数据点序号
+     * @param last 可见范围最后一个数据点序号
+     * @param bucketSize 每个桶包含的原始数据点个数
+     * @param out 缓冲区
+     * @return 写入的数据点个数
+     */
+    private int convertDownsampled(int first, int last, int bucketSize, WaveBuffers out) {
+        int evicted = originSeries.getEvictedCount(); // 降采样结果按绝对序号保存
+        int firstBucket = (first + evicted) / bucketSize;
+        int lastBucket = (last + evicted) / bucketSize;
+        downsampler.update(originSeries, bucketSize, lastBucket - 1);
+        out.ensureCapacity(lastBucket - firstBucket + 2);
+        int count = 0;
+        out.xs[count] = originSeries.getX(first);
+        out.ys[count] = originSeries.getY(first);
+        count++;
+        for (int k = firstBucket + 1; k < lastBucket; k++) {
+            int index = downsampler.getSelected(k) - evicted;
+            out.xs[count] = originSeries.getX(index);
+            out.ys[count] = originSeries.getY(index);
+            count++;
         }
-
-        canvas.restoreToCount(layoutId);
+        if (last != first) {
+            out.xs[count] = originSeries.getX(last);
+            out.ys[count] = originSeries.getY(last);
+            count++;
+        }
+        return count;
     }
 
-    @Override
-    public void setAlpha(int alpha) {
-
+    /**
+     * 把多分辨率索引中某一层的桶平均值写入缓冲区,同时写入每个桶的最小/最大值用于画包络带
+     *
+     * @param first 可见范围第一个数据点序号
+     * @param last 可见范围最后一个数据点序号
+     * @param level 索引层级
+     * @param out 缓冲区
+     * @return 写入的数据点个数
+     */
+    private int convertPyramid(int first, int last, int level, WaveBuffers out) {
+        int evicted = originSeries.getEvictedCount(); // 多分辨率索引按绝对序号保存
+        int firstBucket = (first + evicted) >> level;
+        int lastBucket = (last + evicted) >> level;
+        int count = lastBucket - firstBucket + 1;
+        out.ensureCapacity(count);
+        out.ensureEnvelopeCapacity(count);
+        for (int i = 0; i < count; i++) {
+            int bucket = firstBucket + i;
+            out.xs[i] = pyramid.getMeanX(level, bucket);
+            out.ys[i] = pyramid.getMeanY(level, bucket);
+            out.minYs[i] = pyramid.getMinY(level, bucket);
+            out.maxYs[i] = pyramid.getMaxY(level, bucket);
+        }
+        return count;
     }
 
-    @Override
-    public void setColorFilter(ColorFilter colorFilter) {
-
+    /**
+     * 计算降采样桶大小,取2的整数次幂,避免缩放时桶大小频繁变化导致降采样结果全部重算
+     *
+     * @param count 可见数据点个数
+     * @param budget 最多保留的数据点个数
+     * @return 每个桶包含的原始数据点个数
+     */
+    private static int getBucketSize(int count, int budget) {
+        int ratio = (count + budget - 1) / budget;
+        return ratio <= 1 ? 1 : Integer.highestOneBit(ratio - 1) << 1;
     }
 
-    @Override
-    public int getOpacity() {
-        return PixelFormat.TRANSLUCENT;
+    /**
+     * 实时模式下使用增量几何计算.降采样需要基于可见范围重新选点,此时仍使用普通的计算方式
+     *
+     * @return true使用实时模式的增量几何计算
+     */
+    private boolean isStreamGeometryEnabled() {
+        return originSeries.getRingCapacity() > 0 && downsampleMode == DOWNSAMPLE_NONE;
     }
 
-    public void setLineColor(int lineColor) {
-        this.lineColor = lineColor;
-        invalidateSelf();
+    /**
+     * 实时模式:追加数据后把X轴窗口滑动到最新数据点
+     */
+    private void applyStreamWindow() {
+        if (!isStreamWindowDirty) {
+            return;
+        }
+        isStreamWindowDirty = false;
+        if (streamWindowWidth <= 0 || originSeries.isEmpty()) {
+            return;
+        }
+        float lastX = originSeries.getX(originSeries.size() - 1);
+        axisXRange = new Range<>(lastX - streamWindowWidth, lastX); // 只平移窗口,不改变几何版本号
     }
 
-    public void setWaveColorStart(@ColorInt int waveColorStart) {
-        this.waveColorStart = waveColorStart;
-        int alphaInt = (waveColorStart >> BIN_LENGTH_24) & MASK_HEX_2;
-        if (alphaInt == 0) {
-            alphaInt = 255;
+    /**
+     * 实时模式下的几何计算.像素坐标相对固定的基准点计算,追加数据时只转换新增的点,
+     * 并只重算最后几个点的辅助点(辅助点只依赖左右相邻的点);窗口滑动时只改变绘制平移量,不重算已有的点
+     */
+    private void ensureStreamGeometry() {
+        int size = originSeries.size();
+        if (size == 0 || axisXRange == null || axisYRange == null) {
+            geometry.reset();
+            return;
         }
-        int baseColorInt = waveColorStart & MASK_HEX_6;
-        for (int i = 0; i < waveColors.length; i++) {
-            int alpha = (int) (alphaInt * waveAlphas[i] + 0.5f);
-            waveColors[i] = ((alpha & MASK_HEX_2) << BIN_LENGTH_24) + baseColorInt;
+        float axisXLower = axisXRange.getLower();
+        int absStart = originSeries.getEvictedCount();
+        int absEnd = absStart + size;
+        boolean isRebuild = builtGeometryVersion != geometryVersion
+                || streamBuiltResetVersion != originSeries.getResetVersion()
+                || absEnd - streamBuiltEnd >= size
+                || Math.abs((geometry.originX - axisXLower) * geometry.scaleX) > STREAM_REBASE_PIXELS;
+        if (isRebuild) {
+            geometry.setTransform(axisXLower, axisXRange.getUpper(), axisYRange.getLower(), axisYRange.getUpper(),
+                    getBounds().width(), getBounds().height(), lineStrokeWidth);
+            int capacity = originSeries.getRingCapacity();
+            if (streamXs.length != capacity) {
+                streamXs = new float[capacity];
+                streamYs = new float[capacity];
+                streamAssistPoints = new float[capacity * ASSIST_STRIDE];
+            }
+            convertStreamPoints(0, size);
+            for (int i = 0; i < size; i++) {
+                calStreamAssistPoint(i, size);
+            }
+            builtGeometryVersion = geometryVersion;
+            streamBuiltResetVersion = originSeries.getResetVersion();
+        } else if (absEnd > streamBuiltEnd) {
+            int firstNew = Math.max(streamBuiltEnd, absStart) - absStart;
+            convertStreamPoints(firstNew, size);
+            // 原来的最后一个点有了右边的相邻点,最早的点可能失去了左边的相邻点,都需要重算辅助点
+            calStreamAssistPoint(0, size);
+            for (int i = Math.max(0, firstNew - 1); i < size; i++) {
+                calStreamAssistPoint(i, size);
+            }
+        } else {
+            drawOffsetX = (geometry.originX - axisXLower) * geometry.scaleX;
+            geometryCacheHitCount++;
+            return;
         }
-        invalidateSelf();
+        streamBuiltEnd = absEnd;
+        buildStreamPaths(size);
+        drawOffsetX = (geometry.originX - axisXLower) * geometry.scaleX;
+        builtSeriesVersion = originSeries.getVersion();
+        geometryBuildCount++;
     }
 
-    public void setFocusIndex(@IntRange(from = -1) int focusIndex) {
-        this.focusIndex = focusIndex;
+    private void convertStreamPoints(int from, int to) {
+        for (int i = from; i < to; i++) {
+            int slot = originSeries.getSlot(i);
+            streamXs[slot] = geometry.toPixelX(originSeries.getX(i));
+            streamYs[slot] = geometry.toPixelY(originSeries.getY(i));
+        }
     }
 
-    private static ArrayMap<PointF, Pair<PointF, PointF>> calAssistPoints(List<PointF> baseDots) {
-        if (baseDots == null || baseDots.isEmpty()) {
-            return new ArrayMap<>(0);
-        }
-        ArrayMap<PointF, Pair<PointF, PointF>> result = new ArrayMap<>();
-        for (int i = 0; i < baseDots.size(); i++) {
-            float slop = getAssistPointSlop(baseDots, i); // 当前基准点及其左右两个基准点3点一线的目标斜率
-            PointF curr = baseDots.get(i); // 当前基准点
-            PointF pre = i <= 0 ? null : baseDots.get(i - 1); // 前一个基准点
-            PointF next = i >= baseDots.size() - 1 ? null : baseDots.get(i + 1); // 下一个基准点
-            PointF leftAssistPoint = null; // 当前基准点左边的辅助点
-            PointF rightAssistPoint = null; // 当前基准点右边的辅助点
-
-            float leftAssistX = curr.x; // 当前基准点左边辅助点的X坐标
-            float leftAssistY = curr.y; // 当前基准点左边辅助点的Y坐标
-            if (pre != null) {
-                leftAssistX = curr.x - (curr.x - pre.x) * SLOP_RATE;
-                leftAssistY = curr.y - slop * (curr.x - leftAssistX);
-            }
-            leftAssistPoint = new PointF(leftAssistX, leftAssistY);
+    private void calStreamAssistPoint(int index, int size) {
+        int slot = originSeries.getSlot(index);
+        int preSlot = index > 0 ? originSeries.getSlot(index - 1) : slot;
+        int nextSlot = index < size - 1 ? originSeries.getSlot(index + 1) : slot;
+        calAssistPoint(streamXs[preSlot], streamYs[preSlot], streamXs[slot], streamYs[slot], streamXs[nextSlot],
+                streamYs[nextSlot], index > 0, index < size - 1, streamAssistPoints, slot * ASSIST_STRIDE);
+    }
 
-            float rightAssistX = curr.x; // 当前基准点右边辅助点的X坐标
-            float rightAssistY = curr.y; // 当前基准点右边辅助点的Y坐标
-            if (next != null) {
-                rightAssistX = curr.x + (next.x - curr.x) * SLOP_RATE;
-                rightAssistY = curr.y + slop * (rightAssistX - curr.x);
-            }
-            rightAssistPoint = new PointF(rightAssistX, rightAssistY);
+    /**
+     * 根据实时模式的环形缓冲区重新生成波形线条和填充的Path.只是把已经算好的点依次连接起来,不做任何坐标计算
+     *
+     * @param size 数据点个数
+     */
+    private void buildStreamPaths(int size) {
+        Path path = geometry.path;
+        Path wavePath = geometry.wavePath;
+        path.reset();
+        wavePath.reset();
+        geometry.envelopePath.reset();
+        geometry.isPyramid = false;
+        path.incReserve(size * 3);
+        wavePath.incReserve(size * 3 + 4);
+        int firstSlot = originSeries.getSlot(0);
+        float minY = streamYs[firstSlot];
+        float maxY = minY;
+        path.moveTo(streamXs[firstSlot], streamYs[firstSlot]);
+        wavePath.moveTo(streamXs[firstSlot], getBounds().height());
+        wavePath.lineTo(streamXs[firstSlot], streamYs[firstSlot]);
+        float[] assist = streamAssistPoints;
+        int slot = firstSlot;
+        for (int i = 1; i < size; i++) {
+            int nextSlot = originSeries.getSlot(i);
+            int offset = slot * ASSIST_STRIDE;
+            int nextOffset = nextSlot * ASSIST_STRIDE;
+            float nextX = streamXs[nextSlot];
+            float nextY = streamYs[nextSlot];
+            path.cubicTo(assist[offset + ASSIST_RIGHT_X], assist[offset + ASSIST_RIGHT_Y],
+                    assist[nextOffset + ASSIST_LEFT_X], assist[nextOffset + ASSIST_LEFT_Y], nextX, nextY);
+            wavePath.cubicTo(assist[offset + ASSIST_RIGHT_X], assist[offset + ASSIST_RIGHT_Y],
+                    assist[nextOffset + ASSIST_LEFT_X], assist[nextOffset + ASSIST_LEFT_Y], nextX, nextY);
+            minY = Math.min(minY, nextY);
+            maxY = Math.max(maxY, nextY);
+            slot = nextSlot;
+        }
+        wavePath.lineTo(streamXs[slot], getBounds().height());
+        wavePath.close();
+        geometry.minY = minY;
+        geometry.maxY = maxY;
+        geometry.count = size;
+        geometry.firstIndex = 0;
+        geometry.lastIndex = size - 1;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        if (!prepareDraw()) {
+            return;
+        }
+        int layoutId = renderLayer.save(canvas, getBounds());
+        canvas.translate(getBounds().left + drawOffsetX, getBounds().top);
 
-            result.put(new PointF(curr.x, curr.y), new Pair<>(leftAssistPoint, rightAssistPoint));
+        if (isShowAssistDot && !isStreamGeometryEnabled() && !isBuffersShared && !isAsyncGeometryEnabled) { // 画"三次贝塞尔曲线"的辅助点,调试找bug专用
+            drawAssistDots(canvas);
         }
-        return result;
+        drawFill(canvas);
+        drawEnvelope(canvas);
+        drawLine(canvas);
+        if (!isFocusDeferred) {
+            drawFocusDot(canvas);
+        }
+
+        canvas.restoreToCount(layoutId);
     }
 
     /**
-     * 获取一个基准点(数据点)左右两个辅助点的斜率
+     * 绘制前的准备:滑动实时模式的窗口,并在需要时重新计算几何缓存
      *
-     * @param baseDots 基准点列表
-     * @param index 当前求斜率的点序号
-     * @return 斜率,从左上到右下走向的线段斜率为正;从左下到右上走向的线段斜率为负.
+     * @return false没有可画的内容
      */
-    private static float getAssistPointSlop(List<PointF> baseDots, int index) {
-//        return 0;
-        if (baseDots == null || baseDots.isEmpty()) {
-            return 0;
+    boolean prepareDraw() {
+        applyStreamWindow();
+        drawOffsetX = 0;
+        if (isStreamGeometryEnabled()) {
+            ensureStreamGeometry();
+        } else {
+            ensureGeometry();
         }
-        if (index <= 0 || index >= baseDots.size() - 1) {
-            return 0;
+        isGestureTransformed = gestureScaleX != 1f || gestureTranslateX != 0 || !Float.isNaN(gestureYLower);
+        if (isGestureTransformed) {
+            calGestureScaleY();
+            // 画布已经平移了drawOffsetX,这里要让最终结果等于 gestureScaleX * (x + drawOffsetX) + gestureTranslateX
+            gestureMatrix.setScale(gestureScaleX, gestureMatrixScaleY);
+            gestureMatrix.postTranslate(gestureTranslateX + (gestureScaleX - 1) * drawOffsetX, gestureMatrixTranslateY);
         }
-        PointF prePoint = baseDots.get(index - 1);
-        PointF nextPoint = baseDots.get(index + 1);
-        PointF currPoint = baseDots.get(index);
-        if ((prePoint.y <= currPoint.y && nextPoint.y <= currPoint.y)
-                || (prePoint.y >= currPoint.y && nextPoint.y >= currPoint.y)) {
-            return 0;
+        return geometry.count > 0;
+    }
+
+    /**
+     * 计算把几何结果的Y轴范围映射到手势过程中的Y轴范围所需的缩放比例和平移量
+     */
+    private void calGestureScaleY() {
+        gestureMatrixScaleY = 1f;
+        gestureMatrixTranslateY = 0;
+        if (Float.isNaN(gestureYLower) || gestureYUpper <= gestureYLower || geometry.scaleY == 0) {
+            return;
         }
-        return (nextPoint.y - prePoint.y) / (nextPoint.x - prePoint.x);
+        // 像素Y = baseline - (y - 下限) * 缩放比例,新旧两个映射之间是一个线性变换
+        float targetScaleY = geometry.pixelHeight / (gestureYUpper - gestureYLower);
+        float baseline = geometry.pixelHeight + geometry.halfStroke;
+        gestureMatrixScaleY = targetScaleY / geometry.scaleY;
+        gestureMatrixTranslateY = baseline - (geometry.originY - gestureYLower) * targetScaleY
+                - baseline * gestureMatrixScaleY;
     }
 
     /**
-     * 设置数据
+     * 绘制时X方向额外的平移量,需要在prepareDraw()之后调用
      *
-     * @param points 数据点
-     * @param axisXRange 要展示的X轴范围
-     * @param axisYRange 要展示的Y轴范围
+     * @return 平移量,单位像素
      */
-    public void setData(List<PointF> points, Range<Float> axisXRange, Range<Float> axisYRange) {
-        this.originData = points;
-        this.axisXRange = axisXRange;
-        this.axisYRange = axisYRange;
-        invalidateSelf();
+    float getDrawOffsetX() {
+        return drawOffsetX;
     }
 
-    public void setOriginData(List<PointF> originData) {
-        this.originData = originData;
-        invalidateSelf();
-    }
+    /**
+     * 画出波形下方和X轴之间的填充色.画布需要已经平移到(左边界 + getDrawOffsetX(), 上边界)
+     *
+     * @param canvas 画布
+     */
+    void drawFill(Canvas canvas) {
+        paint.setStyle(Paint.Style.FILL);
+        paint.setShader(getWaveShader(geometry.minY, getBounds().height() * 0.8f));
+        if (isGestureTransformed) { // 填充区域没有线宽,可以直接缩放画布
+            int saveCount = canvas.save();
+            canvas.concat(gestureMatrix);
+            canvas.drawPath(geometry.wavePath, paint);
+            canvas.restoreToCount(saveCount);
+        } else {
+            canvas.drawPath(geometry.wavePath, paint);
+        }
+        paint.setShader(null);
+    }
 
-    public void setAxisXRange(Range<Float> axisXRange) {
-        this.axisXRange = axisXRange;
+    /**
+     * 画出桶内最小/最大值包络带(仅多分辨率索引模式且开启了包络带时).画布要求同drawFill()
+     *
+     * @param canvas 画布
+     */
+    void drawEnvelope(Canvas canvas) {
+        if (!geometry.isPyramid || !isEnvelopeEnabled) {
+            return;
+        }
+        int lineAlphaInt = (lineColor >> BIN_LENGTH_24) & MASK_HEX_2;
+        int envelopeAlphaInt = (int) (lineAlphaInt * envelopeAlpha + 0.5f);
+        paint.setStyle(Paint.Style.FILL);
+        paint.setColor(((envelopeAlphaInt & MASK_HEX_2) << BIN_LENGTH_24) + (lineColor & MASK_HEX_6));
+        if (isGestureTransformed) {
+            int saveCount = canvas.save();
+            canvas.concat(gestureMatrix);
+            canvas.drawPath(geometry.envelopePath, paint);
+            canvas.restoreToCount(saveCount);
+        } else {
+            canvas.drawPath(geometry.envelopePath, paint);
+        }
+    }
+
+    /**
+     * 画出波形线条.画布要求同drawFill()
+     *
+     * @param canvas 画布
+     */
+    void drawLine(Canvas canvas) {
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(lineStrokeWidth);
+        paint.setColor(lineColor);
+        if (isGestureTransformed) { // 变换Path的坐标而不是缩放画布,线宽保持不变
+            geometry.path.transform(gestureMatrix, gesturePath);
+            canvas.drawPath(gesturePath, paint);
+        } else {
+            canvas.drawPath(geometry.path, paint);
+        }
+    }
+
+    /**
+     * 画出焦点圆点(焦点在可见范围内时).画布要求同drawFill()
+     *
+     * @param canvas 画布
+     */
+    void drawFocusDot(Canvas canvas) {
+        if (!getFocusCenter(focusCenter)) {
+            return;
+        }
+        int lineAlphaInt = (lineColor >> BIN_LENGTH_24) & MASK_HEX_2;
+        int lineBaseColor = lineColor & MASK_HEX_6;
+        int focusDotFgAlphaInt = (int) (lineAlphaInt * focusDotAlpha + 0.5f);
+        int focusDotBgAlphaInt = (int) (lineAlphaInt * focusDotBgAlpha + 0.5f);
+        int focusDotFgColor = ((focusDotFgAlphaInt & MASK_HEX_2) << BIN_LENGTH_24) + lineBaseColor;
+        int focusDotBgColor = ((focusDotBgAlphaInt & MASK_HEX_2) << BIN_LENGTH_24) + lineBaseColor;
+
+        float focusX = focusCenter[0];
+        float focusY = focusCenter[1];
+        paint.setStyle(Paint.Style.FILL);
+        paint.setColor(focusDotBgColor);
+        canvas.drawCircle(focusX, focusY, lineStrokeWidth * 4, paint);
+
+        paint.setColor(focusDotFgColor);
+        canvas.drawCircle(focusX, focusY, lineStrokeWidth * 2, paint);
+    }
+
+    /**
+     * 设置手势过程中的X方向缩放比例和平移量.只改变绘制时的变换,不重新计算几何结果;手势结束后由调用方改为设置新的坐标轴范围
+     *
+     * @param scaleX 缩放比例,以drawable左边界为原点
+     * @param translateX 缩放之后的平移量,单位像素
+     */
+    void setGestureTransform(float scaleX, float translateX) {
+        gestureScaleX = scaleX;
+        gestureTranslateX = translateX;
+    }
+
+    /**
+     * 设置手势过程中要显示的Y轴范围,通过变换已经算好的Path实现,不重新计算几何结果
+     *
+     * @param lower Y轴范围下限,NaN表示保持几何结果的Y轴范围
+     * @param upper Y轴范围上限
+     */
+    void setGestureYRange(float lower, float upper) {
+        gestureYLower = lower;
+        gestureYUpper = upper;
+    }
+
+    /**
+     * 获取X坐标在[lowerX, upperX]范围内的数据点Y的最小值和最大值.通过多分辨率索引查询,不遍历数据,复杂度O(log n)
+     *
+     * @param lowerX X坐标下限
+     * @param upperX X坐标上限
+     * @param out 输出,out[0]为最小值,out[1]为最大值
+     * @return false范围内没有数据点或X坐标无序
+     */
+    boolean getYExtent(float lowerX, float upperX, float[] out) {
+        if (originSeries.isEmpty() || !originSeries.isSortedX()) {
+            return false;
+        }
+        int first = originSeries.lowerBound(lowerX);
+        int last = originSeries.upperBound(upperX) - 1;
+        if (first > last) {
+            return false;
+        }
+        pyramid.update(originSeries);
+        pyramid.getMinMaxY(originSeries, first, last, out);
+        return true;
+    }
+
+    /**
+     * 二分查找X坐标离dataX最近的数据点序号
+     *
+     * @param dataX X坐标(基于原始数据)
+     * @return 数据点序号,没有数据或X坐标无序时返回-1
+     */
+    int findNearestIndex(float dataX) {
+        int size = originSeries.size();
+        if (size == 0 || !originSeries.isSortedX()) {
+            return -1;
+        }
+        int index = originSeries.lowerBound(dataX);
+        if (index == size) {
+            return size - 1;
+        }
+        if (index > 0 && dataX - originSeries.getX(index - 1) <= originSeries.getX(index) - dataX) {
+            return index - 1;
+        }
+        return index;
+    }
+
+    float getDataX(int index) {
+        return originSeries.getX(index);
+    }
+
+    float getDataY(int index) {
+        return originSeries.getY(index);
+    }
+
+    /**
+     * 计算dataX处曲线上的Y.辅助点的计算对X、Y各自的线性变换保持不变,因此直接在原始数据坐标系中
+     * 用与绘制相同的方法求出所在区间的两个辅助点,再在三次贝塞尔曲线上二分查找X对应的参数t
+     *
+     * @param dataX X坐标(基于原始数据)
+     * @return Y坐标(基于原始数据),dataX超出数据范围时返回最近端点的Y,没有数据或X坐标无序时返回NaN
+     */
+    float getCurveY(float dataX) {
+        int size = originSeries.size();
+        if (size == 0 || !originSeries.isSortedX()) {
+            return Float.NaN;
+        }
+        int right = originSeries.lowerBound(dataX);
+        if (right == 0 || right == size) {
+            return originSeries.getY(right == 0 ? 0 : size - 1);
+        }
+        int left = right - 1;
+        float x0 = originSeries.getX(left);
+        float y0 = originSeries.getY(left);
+        float x3 = originSeries.getX(right);
+        float y3 = originSeries.getY(right);
+        if (x3 == x0) {
+            return y3;
+        }
+        // 左端点的右辅助点和右端点的左辅助点
+        calAssistPoint(left > 0 ? originSeries.getX(left - 1) : 0, left > 0 ? originSeries.getY(left - 1) : 0,
+                x0, y0, x3, y3, left > 0, true, curveAssistPoints, 0);
+        calAssistPoint(x0, y0, x3, y3, right < size - 1 ? originSeries.getX(right + 1) : 0,
+                right < size - 1 ? originSeries.getY(right + 1) : 0, true, right < size - 1, curveAssistPoints,
+                ASSIST_STRIDE);
+        float x1 = curveAssistPoints[ASSIST_RIGHT_X];
+        float y1 = curveAssistPoints[ASSIST_RIGHT_Y];
+        float x2 = curveAssistPoints[ASSIST_STRIDE + ASSIST_LEFT_X];
+        float y2 = curveAssistPoints[ASSIST_STRIDE + ASSIST_LEFT_Y];
+        // 辅助点X在两端点之间,曲线的X随t单调递增
+        float low = 0;
+        float high = 1;
+        for (int i = 0; i < CURVE_SEARCH_ITERATIONS; i++) {
+            float t = (low + high) / 2;
+            if (cubic(x0, x1, x2, x3, t) < dataX) {
+                low = t;
+            } else {
+                high = t;
+            }
+        }
+        return cubic(y0, y1, y2, y3, (low + high) / 2);
+    }
+
+    private static float cubic(float p0, float p1, float p2, float p3, float t) {
+        float u = 1 - t;
+        return u * u * u * p0 + 3 * u * u * t * p1 + 3 * u * t * t * p2 + t * t * t * p3;
+    }
+
+    /**
+     * 设置可见范围左右两侧额外转换的数据宽度.会使几何结果重新计算
+     *
+     * @param overscan 相对可见范围宽度的倍数,0表示只转换可见范围
+     */
+    void setCullOverscan(float overscan) {
+        if (cullOverscan != overscan) {
+            cullOverscan = overscan;
+            geometryVersion++;
+        }
+    }
+
+    /**
+     * 获取原始数据X坐标的最小值和最大值.X坐标无序或没有数据时返回false
+     *
+     * @param out 输出,out[0]为最小值,out[1]为最大值
+     * @return true获取成功
+     */
+    boolean getDataXExtent(float[] out) {
+        if (originSeries.isEmpty() || !originSeries.isSortedX()) {
+            return false;
+        }
+        out[0] = originSeries.getX(0);
+        out[1] = originSeries.getX(originSeries.size() - 1);
+        return true;
+    }
+
+    /**
+     * 计算焦点圆点的圆心.画布要求同drawFill()
+     *
+     * @param out 输出,out[0]为X,out[1]为Y
+     * @return false焦点不在可见范围内
+     */
+    private boolean getFocusCenter(float[] out) {
+        if (focusIndex < geometry.firstIndex || focusIndex > geometry.lastIndex || focusIndex >= originSeries.size()) {
+            return false;
+        }
+        float focusX = geometry.toPixelX(originSeries.getX(focusIndex));
+        float focusY = geometry.toPixelY(originSeries.getY(focusIndex));
+        if (isGestureTransformed) { // 圆点只变换圆心,不拉伸形状
+            focusX = gestureScaleX * (focusX + drawOffsetX) + gestureTranslateX - drawOffsetX;
+            focusY = gestureMatrixScaleY * focusY + gestureMatrixTranslateY;
+        }
+        out[0] = focusX;
+        out[1] = focusY;
+        return true;
+    }
+
+    /**
+     * 单独画出焦点圆点(焦点覆盖层),画布不需要预先平移.需要在本帧或之前某一帧的prepareDraw()之后调用
+     *
+     * @param canvas 画布
+     */
+    void drawFocusOverlay(Canvas canvas) {
+        if (geometry.count == 0) {
+            return;
+        }
+        int saveCount = canvas.save();
+        canvas.clipRect(getBounds());
+        canvas.translate(getBounds().left + drawOffsetX, getBounds().top);
+        drawFocusDot(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * 获取焦点圆点所在区域(与getBounds()同一个坐标系),用于只重绘焦点变化的区域
+     *
+     * @param out 输出
+     * @return false没有焦点圆点
+     */
+    boolean getFocusBounds(Rect out) {
+        if (geometry.count == 0 || !getFocusCenter(focusCenter)) {
+            return false;
+        }
+        float centerX = focusCenter[0] + getBounds().left + drawOffsetX;
+        float centerY = focusCenter[1] + getBounds().top;
+        float radius = lineStrokeWidth * 4 + 1; // 多留1像素给抗锯齿
+        out.set((int) Math.floor(centerX - radius), (int) Math.floor(centerY - radius),
+                (int) Math.ceil(centerX + radius), (int) Math.ceil(centerY + radius));
+        return true;
+    }
+
+    /**
+     * 设置是否由外部单独绘制焦点圆点(焦点覆盖层).开启后draw()中不画焦点圆点
+     *
+     * @param isFocusDeferred true由外部单独绘制
+     */
+    void setFocusDeferred(boolean isFocusDeferred) {
+        this.isFocusDeferred = isFocusDeferred;
+    }
+
+    /**
+     * 使用外部的几何计算临时缓冲区,同一个View中的多条波形可以共用一份.传null恢复使用自己的缓冲区
+     *
+     * @param buffers 临时缓冲区
+     */
+    void setSharedBuffers(WaveBuffers buffers) {
+        isBuffersShared = buffers != null;
+        this.buffers = buffers != null ? buffers : new WaveBuffers();
+    }
+
+    /**
+     * 是否需要先绘制到离屏图层再整体合成
+     *
+     * @return true需要离屏图层
+     */
+    boolean isLayerNeeded() {
+        return renderLayer.isLayerNeeded();
+    }
+
+    /**
+     * 获取填充渐变色.只在渐变范围变化时更新本地矩阵,不重新创建Shader
+     *
+     * @param startY 渐变起点Y坐标
+     * @param endY 渐变终点Y坐标
+     * @return 渐变色
+     */
+    private Shader getWaveShader(float startY, float endY) {
+        if (startY != waveShaderStartY || endY != waveShaderEndY) {
+            float span = endY - startY;
+            waveShaderMatrix.setScale(1f, span == 0 ? Float.MIN_VALUE : span);
+            waveShaderMatrix.postTranslate(0, startY);
+            waveShader.setLocalMatrix(waveShaderMatrix);
+            waveShaderStartY = startY;
+            waveShaderEndY = endY;
+        }
+        return waveShader;
+    }
+
+    private void drawAssistDots(Canvas canvas) {
+        paint.setStyle(Paint.Style.FILL);
+        paint.setStrokeWidth(lineStrokeWidth);
+        paint.setColor(assistColor);
+        for (int i = 0; i < geometry.count - 1; i++) {
+            int offset = i * ASSIST_STRIDE;
+            float assistX1 = buffers.assistPoints[offset + ASSIST_RIGHT_X];
+            float assistY1 = buffers.assistPoints[offset + ASSIST_RIGHT_Y];
+            float assistX2 = buffers.assistPoints[offset + ASSIST_STRIDE + ASSIST_LEFT_X];
+            float assistY2 = buffers.assistPoints[offset + ASSIST_STRIDE + ASSIST_LEFT_Y];
+            canvas.drawCircle(buffers.xs[i], buffers.ys[i], lineStrokeWidth * 2, paint);
+            canvas.drawCircle(assistX1, assistY1, lineStrokeWidth * 2, paint);
+            canvas.drawCircle(assistX2, assistY2, lineStrokeWidth * 2, paint);
+            canvas.drawLine(buffers.xs[i], buffers.ys[i], assistX1, assistY1, paint);
+            canvas.drawLine(assistX2, assistY2, buffers.xs[i + 1], buffers.ys[i + 1], paint);
+        }
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        super.onBoundsChange(bounds);
+        geometryVersion++;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (renderLayer.setAlpha(alpha)) {
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public int getAlpha() {
+        return renderLayer.getAlpha();
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        if (renderLayer.setColorFilter(colorFilter)) {
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * 设置绘制方式.默认RENDER_MODE_AUTO
+     *
+     * @param renderMode 绘制方式
+     */
+    public void setRenderMode(@RenderMode int renderMode) {
+        if (renderLayer.setRenderMode(renderMode)) {
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    /**
+     * 设置波线条宽度
+     *
+     * @param lineStrokeWidth 线宽,单位像素
+     */
+    public void setLineStrokeWidth(int lineStrokeWidth) {
+        if (this.lineStrokeWidth != lineStrokeWidth) {
+            this.lineStrokeWidth = lineStrokeWidth;
+            geometryVersion++;
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * 设置降采样方式.可见数据点多于 宽度 * 每像素点数 时,会先降采样再计算曲线
+     *
+     * @param downsampleMode DOWNSAMPLE_NONE/DOWNSAMPLE_LTTB/DOWNSAMPLE_PYRAMID
+     */
+    public void setDownsampleMode(@DownsampleMode int downsampleMode) {
+        if (this.downsampleMode != downsampleMode) {
+            this.downsampleMode = downsampleMode;
+            geometryVersion++;
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * 设置多分辨率索引模式下是否画出桶内最小/最大值包络带
+     *
+     * @param envelopeEnabled true画出
+     */
+    public void setEnvelopeEnabled(boolean envelopeEnabled) {
+        if (isEnvelopeEnabled != envelopeEnabled) {
+            isEnvelopeEnabled = envelopeEnabled;
+            geometryVersion++;
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * 设置降采样时每个像素保留的数据点个数
+     *
+     * @param pointsPerPixel 每像素点数,需要大于0
+     */
+    public void setDownsamplePointsPerPixel(@FloatRange(from = 0f, fromInclusive = false) float pointsPerPixel) {
+        if (pointsPerPixel > 0 && downsamplePointsPerPixel != pointsPerPixel) {
+            downsamplePointsPerPixel = pointsPerPixel;
+            geometryVersion++;
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * 设置是否在工作线程计算几何结果(像素转换、辅助点、Path).开启后数据或坐标轴范围变化时,
+     * 在新结果算好之前继续显示上一次的结果,算好后通过invalidateSelf()重绘.实时模式的增量计算始终在UI线程
+     *
+     * @param isAsyncGeometryEnabled true在工作线程计算
+     */
+    public void setAsyncGeometryEnabled(boolean isAsyncGeometryEnabled) {
+        this.isAsyncGeometryEnabled = isAsyncGeometryEnabled;
+    }
+
+    /**
+     * 设置计算几何结果的工作线程,不设置时使用所有波形共用的单线程
+     *
+     * @param executor 工作线程,传null恢复默认
+     */
+    public void setGeometryExecutor(Executor executor) {
+        this.geometryExecutor = executor;
+    }
+
+    public void setLineColor(int lineColor) {
+        this.lineColor = lineColor;
+        invalidateSelf();
+    }
+
+    public void setWaveColorStart(@ColorInt int waveColorStart) {
+        this.waveColorStart = waveColorStart;
+        int alphaInt = (waveColorStart >> BIN_LENGTH_24) & MASK_HEX_2;
+        if (alphaInt == 0) {
+            alphaInt = 255;
+        }
+        int baseColorInt = waveColorStart & MASK_HEX_6;
+        for (int i = 0; i < waveColors.length; i++) {
+            int alpha = (int) (alphaInt * waveAlphas[i] + 0.5f);
+            waveColors[i] = ((alpha & MASK_HEX_2) << BIN_LENGTH_24) + baseColorInt;
+        }
+        waveShader = new LinearGradient(0, 0, 0, 1, waveColors, waveColorPositions, Shader.TileMode.CLAMP);
+        waveShaderStartY = Float.NaN; // 新的Shader需要重新设置矩阵
+        waveShaderEndY = Float.NaN;
+        invalidateSelf();
+    }
+
+    public void setFocusIndex(@IntRange(from = -1) int focusIndex) {
+        this.focusIndex = focusIndex;
+    }
+
+    /**
+     * 线性遍历一次,计算每个基准点左右两个辅助点
+     *
+     * @param xs 基准点X坐标
+     * @param ys 基准点Y坐标
+     * @param count 基准点个数
+     * @param out 输出缓冲区,长度至少为count * ASSIST_STRIDE,按序号与基准点对齐
+     */
+    static void calAssistPoints(float[] xs, float[] ys, int count, float[] out) {
+        for (int i = 0; i < count; i++) {
+            calAssistPoint(xs, ys, count, i, out);
+        }
+    }
+
+    /**
+     * 计算单个基准点左右两个辅助点.只依赖该基准点和左右相邻的两个基准点
+     *
+     * @param xs 基准点X坐标
+     * @param ys 基准点Y坐标
+     * @param count 基准点个数
+     * @param index 基准点序号
+     * @param out 输出缓冲区,结果写在index * ASSIST_STRIDE处
+     */
+    static void calAssistPoint(float[] xs, float[] ys, int count, int index, float[] out) {
+        boolean hasPre = index > 0;
+        boolean hasNext = index < count - 1;
+        calAssistPoint(hasPre ? xs[index - 1] : 0, hasPre ? ys[index - 1] : 0, xs[index], ys[index],
+                hasNext ? xs[index + 1] : 0, hasNext ? ys[index + 1] : 0, hasPre, hasNext, out,
+                index * ASSIST_STRIDE);
+    }
+
+    /**
+     * 计算单个基准点左右两个辅助点
+     *
+     * @param preX 前一个基准点X坐标
+     * @param preY 前一个基准点Y坐标
+     * @param currX 当前基准点X坐标
+     * @param currY 当前基准点Y坐标
+     * @param nextX 下一个基准点X坐标
+     * @param nextY 下一个基准点Y坐标
+     * @param hasPre 是否有前一个基准点
+     * @param hasNext 是否有下一个基准点
+     * @param out 输出缓冲区
+     * @param offset 结果在输出缓冲区中的位置
+     */
+    static void calAssistPoint(float preX, float preY, float currX, float currY, float nextX, float nextY,
+                               boolean hasPre, boolean hasNext, float[] out, int offset) {
+        // 当前基准点及其左右两个基准点3点一线的目标斜率
+        float slop = hasPre && hasNext ? getAssistPointSlop(preX, preY, currY, nextX, nextY) : 0;
+
+        float leftAssistX = currX; // 当前基准点左边辅助点的X坐标
+        float leftAssistY = currY; // 当前基准点左边辅助点的Y坐标
+        if (hasPre) {
+            leftAssistX = currX - (currX - preX) * SLOP_RATE;
+            leftAssistY = currY - slop * (currX - leftAssistX);
+        }
+        out[offset + ASSIST_LEFT_X] = leftAssistX;
+        out[offset + ASSIST_LEFT_Y] = leftAssistY;
+
+        float rightAssistX = currX; // 当前基准点右边辅助点的X坐标
+        float rightAssistY = currY; // 当前基准点右边辅助点的Y坐标
+        if (hasNext) {
+            rightAssistX = currX + (nextX - currX) * SLOP_RATE;
+            rightAssistY = currY + slop * (rightAssistX - currX);
+        }
+        out[offset + ASSIST_RIGHT_X] = rightAssistX;
+        out[offset + ASSIST_RIGHT_Y] = rightAssistY;
+    }
+
+    /**
+     * 获取一个基准点(数据点)左右两个辅助点的斜率
+     *
+     * @param preX 前一个基准点X坐标
+     * @param preY 前一个基准点Y坐标
+     * @param currY 当前基准点Y坐标
+     * @param nextX 下一个基准点X坐标
+     * @param nextY 下一个基准点Y坐标
+     * @return 斜率,从左上到右下走向的线段斜率为正;从左下到右上走向的线段斜率为负.
+     */
+    private static float getAssistPointSlop(float preX, float preY, float currY, float nextX, float nextY) {
+        if ((preY <= currY && nextY <= currY) || (preY >= currY && nextY >= currY)) {
+            return 0;
+        }
+        return (nextY - preY) / (nextX - preX);
+    }
+
+    /**
+     * 设置数据
+     *
+     * @param points 数据点
+     * @param axisXRange 要展示的X轴范围
+     * @param axisYRange 要展示的Y轴范围
+     */
+    public void setData(List<PointF> points, Range<Float> axisXRange, Range<Float> axisYRange) {
+        stopMorph(false);
+        originSeries.setPoints(points);
+        updateAxisXRange(axisXRange);
+        updateAxisYRange(axisYRange);
+        scheduleInvalidate();
+    }
+
+    /**
+     * 设置数据(列式数据,不需要为每个数据点创建对象)
+     *
+     * @param xs 数据点X坐标
+     * @param ys 数据点Y坐标
+     * @param count 有效数据点个数
+     * @param axisXRange 要展示的X轴范围
+     * @param axisYRange 要展示的Y轴范围
+     */
+    public void setData(float[] xs, float[] ys, int count, Range<Float> axisXRange, Range<Float> axisYRange) {
+        stopMorph(false);
+        originSeries.setData(xs, ys, count);
+        updateAxisXRange(axisXRange);
+        updateAxisYRange(axisYRange);
+        scheduleInvalidate();
+    }
+
+    /**
+     * 使用列式数据文件中的一条波形作为原始数据.直接引用映射到内存的数据列,不拷贝到Java堆上
+     *
+     * @param file 列式数据文件
+     * @param seriesIndex 文件中的序列序号,X列必须是float32
+     * @param axisXRange 要展示的X轴范围
+     * @param axisYRange 要展示的Y轴范围
+     */
+    public void setData(ChartDataFile file, int seriesIndex, Range<Float> axisXRange, Range<Float> axisYRange) {
+        stopMorph(false);
+        if (file == null || seriesIndex < 0 || seriesIndex >= file.getSeriesCount()
+                || file.getSeriesType(seriesIndex) != ChartDataFile.SERIES_WAVE) {
+            originSeries.clear();
+        } else {
+            originSeries.setData(file.getXBuffer(seriesIndex), file.getYBuffer(seriesIndex),
+                    file.isSortedX(seriesIndex));
+        }
+        updateAxisXRange(axisXRange);
+        updateAxisYRange(axisYRange);
+        scheduleInvalidate();
+    }
+
+    /**
+     * 从压缩存储中解码X轴范围内的数据作为原始数据,直接写入绘制用的数组.
+     * 平移到新的X轴范围时再次调用即可,不需要重新拉取数据
+     *
+     * @param store 压缩存储
+     * @param axisXRange 要展示的X轴范围,同时也是解码窗口
+     * @param axisYRange 要展示的Y轴范围
+     */
+    public void setData(CompressedWaveStore store, Range<Float> axisXRange, Range<Float> axisYRange) {
+        stopMorph(false);
+        if (axisXRange == null) {
+            originSeries.clear();
+        } else {
+            originSeries.setData(store, axisXRange.getLower(), axisXRange.getUpper());
+        }
+        updateAxisXRange(axisXRange);
+        updateAxisYRange(axisYRange);
+        scheduleInvalidate();
+    }
+
+    public void setOriginData(List<PointF> originData) {
+        stopMorph(false);
+        originSeries.setPoints(originData);
+        scheduleInvalidate();
+    }
+
+    /**
+     * 设置原始数据(列式数据)
+     *
+     * @param xs 数据点X坐标
+     * @param ys 数据点Y坐标
+     * @param count 有效数据点个数
+     */
+    public void setOriginData(float[] xs, float[] ys, int count) {
+        stopMorph(false);
+        originSeries.setData(xs, ys, count);
+        scheduleInvalidate();
+    }
+
+    /**
+     * 平滑过渡到新数据.坐标轴范围不变
+     *
+     * @param points 新数据
+     * @param animDuration 动画播放时间,单位毫秒.此参数<=0的时候没有动画.
+     */
+    public void animateTo(List<PointF> points, long animDuration) {
+        animateTo(points, null, null, animDuration);
+    }
+
+    /**
+     * 平滑过渡到新数据,同时切换坐标轴范围.旧数据按屏幕位置过渡到新数据,动画过程中不创建对象
+     *
+     * @param points 新数据
+     * @param axisXRange 新数据要展示的X轴范围,null表示不变
+     * @param axisYRange 新数据要展示的Y轴范围,null表示不变
+     * @param animDuration 动画播放时间,单位毫秒.此参数<=0的时候没有动画.
+     */
+    public void animateTo(List<PointF> points, Range<Float> axisXRange, Range<Float> axisYRange, long animDuration) {
+        boolean isInterrupted = stopMorph(false);
+        morph.setTarget(points);
+        startMorph(axisXRange, axisYRange, animDuration, isInterrupted);
+    }
+
+    /**
+     * 平滑过渡到新数据(列式数据),同时切换坐标轴范围.旧数据按屏幕位置过渡到新数据,动画过程中不创建对象
+     *
+     * @param xs 新数据点X坐标,会被拷贝,调用方可以继续复用
+     * @param ys 新数据点Y坐标
+     * @param count 有效数据点个数
+     * @param axisXRange 新数据要展示的X轴范围,null表示不变
+     * @param axisYRange 新数据要展示的Y轴范围,null表示不变
+     * @param animDuration 动画播放时间,单位毫秒.此参数<=0的时候没有动画.
+     */
+    public void animateTo(float[] xs, float[] ys, int count, Range<Float> axisXRange, Range<Float> axisYRange,
+                          long animDuration) {
+        boolean isInterrupted = stopMorph(false);
+        morph.setTarget(xs, ys, count);
+        startMorph(axisXRange, axisYRange, animDuration, isInterrupted);
+    }
+
+    /**
+     * 开始过渡动画.旧数据X坐标无序或处于实时模式时没有动画,直接切换到新数据
+     *
+     * @param axisXRange 新的X轴范围,null表示不变
+     * @param axisYRange 新的Y轴范围,null表示不变
+     * @param animDuration 动画播放时间,单位毫秒
+     * @param isInterrupted 是否打断了正在进行的过渡动画,此时当前曲线只重采样到新数据的网格上,网格点个数不会越来越多
+     */
+    private void startMorph(Range<Float> axisXRange, Range<Float> axisYRange, long animDuration,
+                            boolean isInterrupted) {
+        Range<Float> toAxisX = axisXRange == null ? this.axisXRange : axisXRange;
+        Range<Float> toAxisY = axisYRange == null ? this.axisYRange : axisYRange;
+        boolean isMorphable = animDuration > 0 && originSeries.getRingCapacity() <= 0 && originSeries.isSortedX()
+                && morph.prepare(originSeries, this.axisXRange, this.axisYRange, toAxisX, toAxisY, isInterrupted);
+        updateAxisXRange(toAxisX);
+        updateAxisYRange(toAxisY);
+        if (!isMorphable) {
+            originSeries.setData(morph.targetXs, morph.targetYs, morph.targetCount);
+            invalidateSelf();
+            return;
+        }
+        morph.interpolate(0);
+        originSeries.setData(morph.xs, morph.ys, morph.count);
+        morphAnimator = ValueAnimator.ofFloat(0f, 1f);
+        morphAnimator.setRepeatCount(0);
+        morphAnimator.setDuration(animDuration);
+        morphAnimator.setInterpolator(new DecelerateInterpolator());
+        morphAnimator.addUpdateListener(animation -> {
+            float fraction = animation.getAnimatedFraction(); // 不用getAnimatedValue(),避免每帧装箱
+            if (fraction >= 1f) {
+                stopMorph(true);
+            } else {
+                morph.interpolate(fraction);
+                originSeries.setData(morph.xs, morph.ys, morph.count);
+            }
+            invalidateSelf();
+        });
+        morphAnimator.start();
         invalidateSelf();
     }
 
+    /**
+     * 停止过渡动画
+     *
+     * @param isJumpToEnd true直接切换到新数据,false保留当前帧的数据(随后会被其他数据覆盖)
+     * @return true停止了正在进行的过渡动画
+     */
+    private boolean stopMorph(boolean isJumpToEnd) {
+        if (morphAnimator == null) {
+            return false;
+        }
+        morphAnimator.removeAllUpdateListeners();
+        morphAnimator.cancel();
+        morphAnimator = null;
+        if (isJumpToEnd) {
+            originSeries.setData(morph.targetXs, morph.targetYs, morph.targetCount);
+        }
+        return true;
+    }
+
+    public void setAxisXRange(Range<Float> axisXRange) {
+        updateAxisXRange(axisXRange);
+        scheduleInvalidate();
+    }
+
     public void setAxisYRange(Range<Float> axisYRange) {
+        updateAxisYRange(axisYRange);
+        scheduleInvalidate();
+    }
+
+    private void updateAxisXRange(Range<Float> axisXRange) {
+        if (!isSameRange(this.axisXRange, axisXRange)) {
+            geometryVersion++;
+        }
+        this.axisXRange = axisXRange;
+    }
+
+    private void updateAxisYRange(Range<Float> axisYRange) {
+        if (!isSameRange(this.axisYRange, axisYRange)) {
+            geometryVersion++;
+        }
         this.axisYRange = axisYRange;
+    }
+
+    private static boolean isSameRange(Range<Float> range1, Range<Float> range2) {
+        if (range1 == range2) {
+            return true;
+        }
+        if (range1 == null || range2 == null) {
+            return false;
+        }
+        return range1.getLower().equals(range2.getLower()) && range1.getUpper().equals(range2.getUpper());
+    }
+
+    /**
+     * 获取几何缓存重建次数(调试和测试用)
+     *
+     * @return 重建次数
+     */
+    public int getGeometryBuildCount() {
+        return geometryBuildCount;
+    }
+
+    /**
+     * 获取几何缓存命中次数,即draw()直接复用上次像素点和Path的次数(调试和测试用)
+     *
+     * @return 命中次数
+     */
+    public int getGeometryCacheHitCount() {
+        return geometryCacheHitCount;
+    }
+
+    /**
+     * 开启或关闭实时模式.实时模式下原始数据保存在固定容量的环形缓冲区中,追加数据超出容量时覆盖最早的数据点;
+     * 追加数据只计算新增点及其相邻点的几何数据,X轴窗口随最新数据点滑动时不重算已有的点.
+     * 注:开启或关闭都会清空已有数据
+     *
+     * @param capacity 环形缓冲区容量,<=0表示关闭实时模式
+     * @param windowWidth X轴窗口宽度(基于原始数据),追加数据后窗口右边缘对齐最新数据点;<=0表示窗口不自动滑动
+     */
+    public void setStreamingMode(int capacity, float windowWidth) {
+        stopMorph(false);
+        originSeries.setRingCapacity(capacity);
+        streamWindowWidth = capacity > 0 ? windowWidth : 0;
+        isStreamWindowDirty = false;
+        geometryVersion++;
         invalidateSelf();
     }
 
+    /**
+     * 在末尾追加一个数据点.开启降采样、多分辨率索引或实时模式时只会增量计算新增部分
+     *
+     * @param x 数据点X坐标
+     * @param y 数据点Y坐标
+     */
+    public void appendPoint(float x, float y) {
+        stopMorph(true);
+        originSeries.append(x, y);
+        isStreamWindowDirty = streamWindowWidth > 0;
+        scheduleInvalidate();
+    }
+
+    /**
+     * 在末尾追加多个数据点.开启降采样、多分辨率索引或实时模式时只会增量计算新增部分
+     *
+     * @param xs 数据点X坐标
+     * @param ys 数据点Y坐标
+     * @param count 要追加的数据点个数
+     */
+    public void appendPoints(float[] xs, float[] ys, int count) {
+        stopMorph(true);
+        originSeries.append(xs, ys, count);
+        isStreamWindowDirty = streamWindowWidth > 0;
+        scheduleInvalidate();
+    }
+
+    /**
+     * 同步标记内容有变化,刷新请求合并到下一帧
+     */
+    private void scheduleInvalidate() {
+        contentVersion++;
+        invalidateScheduler.schedule();
+    }
+
+    /**
+     * @return 内容版本号,数据或坐标轴范围每次通过setter修改后都会变化
+     */
+    int getContentVersion() {
+        return contentVersion;
+    }
+
     public Range<Float> getAxisXRange() {
+        applyStreamWindow();
         return axisXRange;
     }
 
@@ -7,17 +7,19 @@ import android.graphics.PointF;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
-import android.os.Build;
 import android.util.AttributeSet;
 import android.util.Pair;
 import android.util.Range;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
+import android.widget.OverScroller;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-import androidx.annotation.RequiresApi;
-
 /**
  * 项目：  My Application
  * 类名：  SmoothWaveView.java
@@ -25,6 +27,18 @@ import androidx.annotation.RequiresApi;
  * 描述：
  */
 public class SmoothWaveView extends View {
+    /**
+     * 手势过程中可见范围左右两侧额外转换的数据宽度(相对可见范围宽度的倍数)
+     */
+    private static final float GESTURE_OVERSCAN = 1f;
+    /**
+     * 最多放大到只显示全部数据的几分之一
+     */
+    private static final float MAX_ZOOM_RATIO = 1000f;
+    /**
+     * 自动适配Y轴范围时上下各留出的空白占可见数据范围的比例
+     */
+    private static final float AUTO_Y_PADDING = 0.1f;
     /**
      * 坐标区域上下左右边距占View宽或者高的百分比
      */
@@ -35,6 +49,93 @@ public class SmoothWaveView extends View {
     private final Rect axisArea = new Rect();
     private SmoothWaveAxisDrawable axisDrawable;
     private List<SmoothWaveDrawable> waveDrawables;
+    /**
+     * 所有波形共用的几何计算临时缓冲区
+     */
+    private final WaveBuffers sharedBuffers = new WaveBuffers();
+    /**
+     * 批量绘制时每条波形是否有可画的内容,按序号与waveDrawables对齐.跨帧复用
+     */
+    private boolean[] wavePrepared = new boolean[0];
+    /**
+     * 是否批量绘制所有波形:共用一次画布状态保存和裁剪,先画所有波形的填充色,再画所有线条,最后画所有焦点圆点
+     */
+    private boolean isBatchDrawEnabled = true;
+
+    private ScaleGestureDetector scaleGestureDetector;
+    private GestureDetector gestureDetector;
+    private OverScroller scroller;
+    /**
+     * 是否支持双指缩放和拖动/快速滑动平移X轴
+     */
+    private boolean isGestureEnabled = true;
+    /**
+     * 是否在手势过程中.手势过程中只变换已经算好的Path,手势结束后才按新的坐标轴范围重新计算
+     */
+    private boolean isGestureActive;
+    /**
+     * 是否在快速滑动的惯性过程中
+     */
+    private boolean isFlinging;
+    /**
+     * 手势过程中X方向的缩放比例和平移量(像素),以坐标区域左边界为原点
+     */
+    private float gestureScale = 1f;
+    private float gestureTranslate;
+    /**
+     * 快速滑动开始时的平移量
+     */
+    private float flingStartTranslate;
+    /**
+     * 手势开始时坐标轴drawable的X轴范围
+     */
+    private Range<Float> gestureAxisXRange;
+    /**
+     * 数据X坐标的最小值和最大值,用于限制缩放和平移范围.跨帧复用
+     */
+    private final float[] dataXExtent = new float[2];
+    private final float[] translateBounds = new float[2];
+    /**
+     * 是否让Y轴范围自动适配可见X轴范围内的数据
+     */
+    private boolean isAutoYEnabled;
+    /**
+     * 单条波形可见数据的Y范围,以及适配后的Y轴范围.跨帧复用
+     */
+    private final float[] yExtent = new float[2];
+    private final float[] autoYRange = new float[2];
+    /**
+     * 是否把焦点圆点和焦点辅助线放到单独的覆盖层绘制.开启后只移动焦点时不重画坐标轴和波形,只回放各层的显示列表
+     */
+    private boolean isFocusOverlayEnabled = true;
+    /**
+     * 坐标轴的显示列表,以及它从上次画完到现在是否有变化
+     */
+    private final DisplayListLayer axisLayer = new DisplayListLayer("SmoothWaveAxis");
+    private boolean isAxisDirty = true;
+    /**
+     * 每条波形的填充色(含包络带)和线条的显示列表,按序号与waveDrawables对齐.不批量绘制时整条波形录制在fillLayers中
+     */
+    private DisplayListLayer[] fillLayers = new DisplayListLayer[0];
+    private DisplayListLayer[] lineLayers = new DisplayListLayer[0];
+    /**
+     * 每条波形从上次画完到现在是否有变化,按序号与waveDrawables对齐
+     */
+    private boolean[] waveDirty = new boolean[0];
+    /**
+     * 各波形上次绘制时的内容版本号
+     */
+    private int[] waveVersions = new int[0];
+    /**
+     * 上一帧是否批量绘制.切换时各波形显示列表中的内容划分不同,需要重新录制
+     */
+    private boolean isLastBatched;
+    /**
+     * 上一帧画出的焦点所在区域,以及本次焦点所在区域.跨帧复用
+     */
+    private final Rect drawnFocusRect = new Rect();
+    private final Rect focusRect = new Rect();
+    private final Rect focusItemRect = new Rect();
 
     public SmoothWaveView(Context context) {
         super(context);
@@ -74,9 +175,12 @@ public class SmoothWaveView extends View {
             waveDrawables.clear();
             waveDrawables = null;
         }
+        releaseLayers();
     }
 
     private void init() {
+        initGesture();
+
         /****************测试数据******************/
         axisDrawable = new SmoothWaveAxisDrawable();
         axisDrawable.setAxisXRange(new Range<>(0f, 4f));
@@ -119,6 +223,7 @@ public class SmoothWaveView extends View {
         waveDrawable1.setFocusIndex(2);
         waveDrawable1.setLineColor(Color.RED);
         waveDrawable1.setWaveColorStart(Color.RED);
+        waveDrawable1.setSharedBuffers(sharedBuffers);
         waveDrawables.add(waveDrawable1);
         waveDrawable1.setCallback(this);
 
@@ -137,32 +242,787 @@ public class SmoothWaveView extends View {
         waveDrawable2.setFocusIndex(2);
         waveDrawable2.setLineColor(Color.BLUE);
         waveDrawable2.setWaveColorStart(Color.BLUE);
+        waveDrawable2.setSharedBuffers(sharedBuffers);
         waveDrawables.add(waveDrawable2);
+        waveDrawable2.setCallback(this);
         /****************测试数据******************/
     }
 
+    private void initGesture() {
+        scroller = new OverScroller(getContext());
+        scaleGestureDetector = new ScaleGestureDetector(getContext(),
+                new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+                    @Override
+                    public boolean onScale(ScaleGestureDetector detector) {
+                        beginGesture();
+                        float focusX = detector.getFocusX() - axisArea.left;
+                        float oldScale = gestureScale;
+                        gestureScale *= detector.getScaleFactor();
+                        clampGesture();
+                        // 保持手指中心下方的数据点不动
+                        gestureTranslate = focusX - (focusX - gestureTranslate) * (gestureScale / oldScale);
+                        updateGesture();
+                        return true;
+                    }
+                });
+        gestureDetector = new GestureDetector(getContext(), new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) { // 有可以缩放/平移的内容时才接管后续事件,否则交给View默认的点击处理
+                return isScrollable();
+            }
+
+            @Override
+            public boolean onSingleTapUp(MotionEvent e) {
+                if (!isScrollable()) { // 事件交给了View默认处理,由它触发点击
+                    return false;
+                }
+                performClick();
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                if (scaleGestureDetector.isInProgress()) {
+                    return false;
+                }
+                beginGesture();
+                gestureTranslate -= distanceX;
+                updateGesture();
+                return true;
+            }
+
+            @Override
+            public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+                if (scaleGestureDetector.isInProgress()) {
+                    return false;
+                }
+                beginGesture();
+                flingStartTranslate = gestureTranslate;
+                int minX = Integer.MIN_VALUE / 2;
+                int maxX = Integer.MAX_VALUE / 2;
+                if (getTranslateBounds(translateBounds)) {
+                    minX = (int) (translateBounds[0] - flingStartTranslate);
+                    maxX = (int) (translateBounds[1] - flingStartTranslate);
+                }
+                scroller.fling(0, 0, (int) velocityX, 0, minX, maxX, 0, 0);
+                isFlinging = true;
+                postInvalidateStaticOnAnimation();
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!isGestureEnabled || waveDrawables == null || waveDrawables.isEmpty()) {
+            return super.onTouchEvent(event);
+        }
+        int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN && isFlinging) { // 按下时停止惯性滑动,从当前位置继续手势
+            scroller.forceFinished(true);
+            isFlinging = false;
+        }
+        scaleGestureDetector.onTouchEvent(event);
+        boolean isHandled = gestureDetector.onTouchEvent(event) || scaleGestureDetector.isInProgress();
+        if ((action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) && !isFlinging) {
+            settleGesture();
+        }
+        return isHandled || super.onTouchEvent(event);
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    /**
+     * 是否有可以缩放/平移的内容
+     *
+     * @return true坐标轴区域有效且至少一条波形设置了X轴范围
+     */
+    private boolean isScrollable() {
+        if (axisArea.width() <= 0) {
+            return false;
+        }
+        for (SmoothWaveDrawable drawable : waveDrawables) {
+            if (drawable.getAxisXRange() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void computeScroll() {
+        super.computeScroll();
+        if (!isFlinging) {
+            return;
+        }
+        if (waveDrawables == null) { // 已经释放
+            isFlinging = false;
+            return;
+        }
+        if (scroller.computeScrollOffset()) {
+            gestureTranslate = flingStartTranslate + scroller.getCurrX();
+            updateGesture();
+        } else {
+            isFlinging = false;
+            settleGesture();
+        }
+    }
+
+    /**
+     * 手势开始:记录坐标轴范围,并让各波形多转换可见范围两侧的数据,平移时边缘不会露出空白
+     */
+    private void beginGesture() {
+        if (isGestureActive) {
+            return;
+        }
+        isGestureActive = true;
+        gestureScale = 1f;
+        gestureTranslate = 0;
+        gestureAxisXRange = axisDrawable != null ? axisDrawable.getAxisXRange() : null;
+        for (SmoothWaveDrawable drawable : waveDrawables) {
+            drawable.setCullOverscan(GESTURE_OVERSCAN);
+        }
+    }
+
+    /**
+     * 手势过程中:只把缩放/平移量交给各波形,在绘制时变换已经算好的Path.坐标轴文字计算量很小,直接按新范围绘制
+     */
+    private void updateGesture() {
+        clampGesture();
+        for (SmoothWaveDrawable drawable : waveDrawables) {
+            drawable.setGestureTransform(gestureScale, gestureTranslate);
+        }
+        if (axisDrawable != null && gestureAxisXRange != null && axisArea.width() > 0) { // 只修改数值,移动过程中不创建Range
+            float span = gestureAxisXRange.getUpper() - gestureAxisXRange.getLower();
+            float lower = transformLower(gestureAxisXRange.getLower(), span);
+            axisDrawable.setGestureXRange(lower, lower + span / gestureScale);
+        }
+        if (isAutoYEnabled && fitAutoYRange(autoYRange)) { // Y轴同样只变换已经算好的Path
+            for (SmoothWaveDrawable drawable : waveDrawables) {
+                drawable.setGestureYRange(autoYRange[0], autoYRange[1]);
+            }
+            if (axisDrawable != null) {
+                axisDrawable.setGestureYRange(autoYRange[0], autoYRange[1]);
+            }
+        }
+        postInvalidateStaticOnAnimation();
+    }
+
+    /**
+     * 手势结束:把缩放/平移量换算成新的坐标轴范围,各波形按新范围重新计算一次几何结果
+     */
+    private void settleGesture() {
+        if (!isGestureActive) {
+            return;
+        }
+        isGestureActive = false;
+        if (waveDrawables != null) {
+            for (SmoothWaveDrawable drawable : waveDrawables) {
+                Range<Float> axisXRange = drawable.getAxisXRange();
+                if (axisXRange != null) {
+                    drawable.setAxisXRange(transformRange(axisXRange));
+                }
+                drawable.setGestureTransform(1f, 0);
+                drawable.setGestureYRange(Float.NaN, Float.NaN);
+                drawable.setCullOverscan(0);
+            }
+        }
+        if (axisDrawable != null) {
+            if (gestureAxisXRange != null) {
+                axisDrawable.setAxisXRange(transformRange(gestureAxisXRange));
+            }
+            axisDrawable.setGestureXRange(Float.NaN, Float.NaN);
+            axisDrawable.setGestureYRange(Float.NaN, Float.NaN);
+        }
+        gestureScale = 1f;
+        gestureTranslate = 0;
+        gestureAxisXRange = null;
+        invalidateStatic();
+    }
+
+    /**
+     * 把手势开始时的X轴范围按当前缩放/平移量换算成可见的X轴范围
+     *
+     * @param range 手势开始时的X轴范围
+     * @return 可见的X轴范围
+     */
+    private Range<Float> transformRange(Range<Float> range) {
+        if (axisArea.width() <= 0) {
+            return range;
+        }
+        float span = range.getUpper() - range.getLower();
+        float lower = transformLower(range.getLower(), span);
+        return new Range<>(lower, lower + span / gestureScale);
+    }
+
+    /**
+     * 按当前缩放/平移量换算可见X轴范围的下限,可见范围的宽度为 span / gestureScale
+     *
+     * @param lower 手势开始时的X轴范围下限
+     * @param span 手势开始时的X轴范围宽度
+     * @return 可见X轴范围的下限
+     */
+    private float transformLower(float lower, float span) {
+        return lower - gestureTranslate / gestureScale * span / axisArea.width();
+    }
+
+    /**
+     * 计算所有波形在可见X轴范围内数据的Y范围并集,再上下各留出一点空白.通过各波形的区间最小/最大值索引查询,不遍历数据
+     *
+     * @param out 输出,out[0]为Y轴范围下限,out[1]为上限
+     * @return false可见范围内没有数据
+     */
+    private boolean fitAutoYRange(float[] out) {
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        boolean isFound = false;
+        for (SmoothWaveDrawable drawable : waveDrawables) {
+            Range<Float> axisXRange = drawable.getAxisXRange();
+            if (axisXRange == null) {
+                continue;
+            }
+            float lower = axisXRange.getLower();
+            float upper = axisXRange.getUpper();
+            if (isGestureActive && axisArea.width() > 0) {
+                float span = upper - lower;
+                lower = transformLower(lower, span);
+                upper = lower + span / gestureScale;
+            }
+            if (drawable.getYExtent(lower, upper, yExtent)) {
+                min = Math.min(min, yExtent[0]);
+                max = Math.max(max, yExtent[1]);
+                isFound = true;
+            }
+        }
+        if (!isFound) {
+            return false;
+        }
+        float padding = (max - min) * AUTO_Y_PADDING;
+        if (padding == 0) { // 可见数据是一条水平线
+            padding = Math.max(Math.abs(max) * AUTO_Y_PADDING, 1f);
+        }
+        out[0] = min - padding;
+        out[1] = max + padding;
+        return true;
+    }
+
+    /**
+     * 把自适应的Y轴范围设置给所有波形和坐标轴.范围数值没变时不创建新对象,各波形也不会重新计算几何结果
+     */
+    private void applyAutoYRange() {
+        if (waveDrawables == null || waveDrawables.isEmpty() || !fitAutoYRange(autoYRange)) {
+            return;
+        }
+        Range<Float> range = null;
+        for (SmoothWaveDrawable drawable : waveDrawables) {
+            if (!isSameRange(drawable.getAxisYRange(), autoYRange)) {
+                if (range == null) {
+                    range = new Range<>(autoYRange[0], autoYRange[1]);
+                }
+                drawable.setAxisYRange(range);
+            }
+        }
+        if (axisDrawable != null && !isSameRange(axisDrawable.getAxisYRange(), autoYRange)) {
+            axisDrawable.setAxisYRange(range != null ? range : new Range<>(autoYRange[0], autoYRange[1]));
+        }
+    }
+
+    private static boolean isSameRange(Range<Float> range, float[] values) {
+        return range != null && range.getLower() == values[0] && range.getUpper() == values[1];
+    }
+
+    /**
+     * 十字线命中测试:把触摸点X换算到每条波形的X坐标,二分查找最近的数据点,同时更新所有波形和坐标轴的焦点.
+     * 不分配内存,可以在每个触摸事件中调用
+     *
+     * @param touchX 触摸点X坐标(View坐标系)
+     * @param isCurveYEnabled 是否计算触摸点X处曲线上的Y
+     * @param out 命中结果,由调用方创建并复用
+     * @return true至少一条波形命中
+     */
+    public boolean hitTest(float touchX, boolean isCurveYEnabled, WaveCrosshair out) {
+        int size = waveDrawables != null ? waveDrawables.size() : 0;
+        out.reset(size);
+        initAxisArea();
+        if (size == 0 || axisArea.width() <= 0) {
+            return false;
+        }
+        // 手势过程中Path经过了缩放/平移,先把触摸点换算回手势开始时的坐标
+        float pixelX = (touchX - axisArea.left - gestureTranslate) / gestureScale;
+        boolean isHit = false;
+        for (int i = 0; i < size; i++) {
+            SmoothWaveDrawable drawable = waveDrawables.get(i);
+            Range<Float> axisXRange = drawable.getAxisXRange();
+            if (axisXRange == null) {
+                continue;
+            }
+            float dataX = axisXRange.getLower() + pixelX * (axisXRange.getUpper() - axisXRange.getLower())
+                    / axisArea.width();
+            if (i == 0) {
+                out.setTouchX(dataX);
+            }
+            int index = drawable.findNearestIndex(dataX);
+            drawable.setFocusIndex(index);
+            if (index < 0) {
+                continue;
+            }
+            float curveY = isCurveYEnabled ? drawable.getCurveY(dataX) : Float.NaN;
+            out.set(i, index, drawable.getDataX(index), drawable.getDataY(index), curveY);
+            isHit = true;
+        }
+        if (axisDrawable != null && !Float.isNaN(out.getTouchX())) {
+            int axisIndex = axisDrawable.findNearestIndex(out.getTouchX());
+            axisDrawable.setFocusIndex(axisIndex);
+            out.setAxisIndex(axisIndex);
+        }
+        invalidateFocus();
+        return isHit;
+    }
+
+    /**
+     * 清除所有波形和坐标轴的焦点
+     */
+    public void clearCrosshair() {
+        if (waveDrawables != null) {
+            for (SmoothWaveDrawable drawable : waveDrawables) {
+                drawable.setFocusIndex(-1);
+            }
+        }
+        if (axisDrawable != null) {
+            axisDrawable.setFocusIndex(-1);
+        }
+        invalidateFocus();
+    }
+
+    /**
+     * 设置是否让Y轴范围自动适配可见X轴范围内的数据.开启后平移/缩放时Y轴范围会跟着变化.默认关闭
+     *
+     * @param isAutoYEnabled true自动适配
+     */
+    public void setAutoYEnabled(boolean isAutoYEnabled) {
+        if (this.isAutoYEnabled != isAutoYEnabled) {
+            this.isAutoYEnabled = isAutoYEnabled;
+            invalidateStatic();
+        }
+    }
+
+    /**
+     * 限制缩放比例(最多显示全部数据,最少显示全部数据的1/MAX_ZOOM_RATIO)和平移量(可见范围不超出数据范围)
+     */
+    private void clampGesture() {
+        Range<Float> range = waveDrawables.get(0).getAxisXRange();
+        if (range == null || !waveDrawables.get(0).getDataXExtent(dataXExtent)) {
+            return;
+        }
+        float span = range.getUpper() - range.getLower();
+        float dataSpan = dataXExtent[1] - dataXExtent[0];
+        if (span <= 0 || dataSpan <= 0) {
+            return;
+        }
+        float minScale = span / Math.max(span, dataSpan);
+        float maxScale = Math.max(minScale, span / (dataSpan / MAX_ZOOM_RATIO));
+        gestureScale = Math.max(minScale, Math.min(maxScale, gestureScale));
+        if (getTranslateBounds(translateBounds)) {
+            gestureTranslate = Math.max(translateBounds[0], Math.min(translateBounds[1], gestureTranslate));
+        }
+    }
+
+    /**
+     * 计算当前缩放比例下,可见范围不超出数据范围时平移量的取值范围
+     *
+     * @param out 输出,out[0]为最小值,out[1]为最大值
+     * @return false数据不足一屏或无法计算,此时不限制平移
+     */
+    private boolean getTranslateBounds(float[] out) {
+        Range<Float> range = waveDrawables.get(0).getAxisXRange();
+        int width = axisArea.width();
+        if (range == null || width <= 0 || !waveDrawables.get(0).getDataXExtent(dataXExtent)) {
+            return false;
+        }
+        float span = range.getUpper() - range.getLower();
+        if (span <= 0) {
+            return false;
+        }
+        float pixelPerUnit = width / span * gestureScale;
+        out[0] = width - (dataXExtent[1] - range.getLower()) * pixelPerUnit;
+        out[1] = -(dataXExtent[0] - range.getLower()) * pixelPerUnit;
+        return out[0] <= out[1];
+    }
+
+    /**
+     * 设置是否支持双指缩放和拖动/快速滑动平移X轴.默认开启
+     *
+     * @param isGestureEnabled true支持
+     */
+    public void setGestureEnabled(boolean isGestureEnabled) {
+        this.isGestureEnabled = isGestureEnabled;
+        if (!isGestureEnabled) {
+            scroller.forceFinished(true);
+            isFlinging = false;
+            settleGesture();
+        }
+    }
+
     @Override
     public void invalidateDrawable(Drawable drawable) {
         super.invalidateDrawable(drawable);
+        if (drawable == axisDrawable) {
+            isAxisDirty = true;
+        } else if (waveDrawables != null) {
+            int index = waveDrawables.indexOf(drawable);
+            if (index >= 0 && index < waveDirty.length) {
+                waveDirty[index] = true;
+            }
+        }
         invalidate();
     }
 
-    @RequiresApi(api = Build.VERSION_CODES.N)
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        markLayersDirty();
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
+        drawStatic(canvas);
+        if (isFocusOverlayEnabled) {
+            drawFocusOverlay(canvas);
+            if (!collectFocusBounds(drawnFocusRect)) {
+                drawnFocusRect.setEmpty();
+            }
+        }
+    }
+
+    /**
+     * 画出坐标轴和所有波形.各层内容没有变化时回放显示列表.开启焦点覆盖层时不包含焦点圆点和焦点辅助线
+     *
+     * @param canvas 画布
+     */
+    private void drawStatic(Canvas canvas) {
         initAxisArea();
+        if (isAutoYEnabled && !isGestureActive) {
+            applyAutoYRange();
+        }
+        int width = getWidth();
+        int height = getHeight();
         if (axisDrawable != null) {
-            axisDrawable.setBounds(0, 0, getWidth(), getHeight());
+            axisDrawable.setFocusDeferred(isFocusOverlayEnabled);
+            axisDrawable.setBounds(0, 0, width, height);
             axisDrawable.setAxisArea(axisArea);
-            axisDrawable.draw(canvas);
+            Canvas target = axisLayer.begin(canvas, isAxisDirty, width, height);
+            if (target != null) {
+                axisDrawable.draw(target);
+            }
+            axisLayer.end(canvas);
+            isAxisDirty = false;
         }
         if (waveDrawables != null && !waveDrawables.isEmpty()) {
-            for (SmoothWaveDrawable drawable : waveDrawables) {
+            ensureWaveLayers(waveDrawables.size());
+            for (int i = 0; i < waveDrawables.size(); i++) {
+                SmoothWaveDrawable drawable = waveDrawables.get(i);
+                drawable.setFocusDeferred(isFocusOverlayEnabled);
                 drawable.setBounds(axisArea);
-                drawable.draw(canvas);
+                // 波形setter的刷新请求要到下一帧才回调,按同步递增的版本号判断,本帧被其他原因触发绘制时也不回放旧内容
+                int version = drawable.getContentVersion();
+                if (waveVersions[i] != version) {
+                    waveVersions[i] = version;
+                    waveDirty[i] = true;
+                }
+            }
+            boolean isBatched = isBatchDrawEnabled && canBatchDraw();
+            if (isBatched != isLastBatched) {
+                Arrays.fill(waveDirty, true);
+                isLastBatched = isBatched;
+            }
+            if (isBatched) {
+                drawWavesBatched(canvas);
+            } else {
+                for (int i = 0; i < waveDrawables.size(); i++) {
+                    Canvas target = fillLayers[i].begin(canvas, waveDirty[i], width, height);
+                    if (target != null) {
+                        waveDrawables.get(i).draw(target);
+                    }
+                    fillLayers[i].end(canvas);
+                    waveDirty[i] = false;
+                }
+            }
+        }
+    }
+
+    private void ensureWaveLayers(int size) {
+        if (fillLayers.length >= size) {
+            return;
+        }
+        int oldSize = fillLayers.length;
+        fillLayers = Arrays.copyOf(fillLayers, size);
+        lineLayers = Arrays.copyOf(lineLayers, size);
+        waveDirty = Arrays.copyOf(waveDirty, size);
+        waveVersions = Arrays.copyOf(waveVersions, size);
+        for (int i = oldSize; i < size; i++) {
+            fillLayers[i] = new DisplayListLayer("SmoothWaveFill" + i);
+            lineLayers[i] = new DisplayListLayer("SmoothWaveLine" + i);
+            waveDirty[i] = true;
+        }
+    }
+
+    /**
+     * 所有层都标记为有变化,下一帧全部重新绘制
+     */
+    private void markLayersDirty() {
+        isAxisDirty = true;
+        Arrays.fill(waveDirty, true);
+    }
+
+    private void releaseLayers() {
+        axisLayer.release();
+        for (int i = 0; i < fillLayers.length; i++) {
+            fillLayers[i].release();
+            lineLayers[i].release();
+        }
+    }
+
+    /**
+     * 焦点覆盖层:先画坐标轴的焦点辅助线,再画各波形的焦点圆点,圆点盖在辅助线上面
+     *
+     * @param canvas 画布
+     */
+    private void drawFocusOverlay(Canvas canvas) {
+        if (axisDrawable != null) {
+            axisDrawable.drawFocusOverlay(canvas);
+        }
+        if (waveDrawables != null) {
+            for (SmoothWaveDrawable drawable : waveDrawables) {
+                drawable.drawFocusOverlay(canvas);
+            }
+        }
+    }
+
+    /**
+     * 计算坐标轴焦点辅助线和所有焦点圆点所在区域的并集
+     *
+     * @param out 输出
+     * @return false没有任何焦点
+     */
+    private boolean collectFocusBounds(Rect out) {
+        out.setEmpty();
+        if (axisDrawable != null && axisDrawable.getFocusBounds(focusItemRect)) {
+            out.union(focusItemRect);
+        }
+        if (waveDrawables != null) {
+            for (SmoothWaveDrawable drawable : waveDrawables) {
+                if (drawable.getFocusBounds(focusItemRect)) {
+                    out.union(focusItemRect);
+                }
+            }
+        }
+        return !out.isEmpty();
+    }
+
+    /**
+     * 静态内容有变化,整体重绘
+     */
+    private void invalidateStatic() {
+        markLayersDirty();
+        invalidate();
+    }
+
+    private void postInvalidateStaticOnAnimation() {
+        markLayersDirty();
+        postInvalidateOnAnimation();
+    }
+
+    /**
+     * 只有焦点变化:没有开启焦点覆盖层时焦点属于静态内容,整体重绘;否则只重绘新旧焦点区域的并集,其余部分回放显示列表
+     */
+    private void invalidateFocus() {
+        if (!isFocusOverlayEnabled) {
+            invalidateStatic();
+            return;
+        }
+        if (!collectFocusBounds(focusRect)) {
+            focusRect.setEmpty();
+        }
+        focusRect.union(drawnFocusRect);
+        if (!focusRect.isEmpty()) {
+            invalidate(focusRect);
+        }
+    }
+
+    /**
+     * 设置是否把焦点放到单独的覆盖层绘制.开启后拖动十字线时只重绘新旧焦点区域,静态内容回放显示列表.默认开启
+     *
+     * @param isFocusOverlayEnabled true开启
+     */
+    public void setFocusOverlayEnabled(boolean isFocusOverlayEnabled) {
+        if (this.isFocusOverlayEnabled != isFocusOverlayEnabled) {
+            this.isFocusOverlayEnabled = isFocusOverlayEnabled;
+            drawnFocusRect.setEmpty();
+            invalidateStatic();
+        }
+    }
+
+    /**
+     * 需要整体透明度或颜色滤镜的波形必须单独合成,此时不能批量绘制
+     *
+     * @return true可以批量绘制
+     */
+    private boolean canBatchDraw() {
+        for (SmoothWaveDrawable drawable : waveDrawables) {
+            if (drawable.isLayerNeeded()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 批量绘制所有波形.几何计算依次复用同一份临时缓冲区,画布只保存、裁剪一次;
+     * 先画所有填充色和包络带,再画所有线条,最后画所有焦点圆点,线条不会被后面波形的填充色盖住.
+     * 每条波形的填充色和线条各录制一份显示列表,没有变化的波形直接回放
+     *
+     * @param canvas 画布
+     */
+    private void drawWavesBatched(Canvas canvas) {
+        int size = waveDrawables.size();
+        if (wavePrepared.length < size) {
+            wavePrepared = new boolean[size];
+        }
+        boolean canReplay = DisplayListLayer.canReplay(canvas);
+        for (int i = 0; i < size; i++) {
+            // 两层显示列表都可以回放时不需要几何结果
+            boolean isContentNeeded = waveDirty[i] || !canReplay || !fillLayers[i].isValid()
+                    || !lineLayers[i].isValid();
+            wavePrepared[i] = isContentNeeded && waveDrawables.get(i).prepareDraw();
+        }
+        int width = getWidth();
+        int height = getHeight();
+        int saveCount = canvas.save();
+        canvas.clipRect(axisArea);
+        for (int i = 0; i < size; i++) {
+            Canvas target = fillLayers[i].begin(canvas, waveDirty[i], width, height);
+            if (target != null && wavePrepared[i]) {
+                drawWavePart(target, waveDrawables.get(i), false);
             }
+            fillLayers[i].end(canvas);
+        }
+        for (int i = 0; i < size; i++) {
+            Canvas target = lineLayers[i].begin(canvas, waveDirty[i], width, height);
+            if (target != null && wavePrepared[i]) {
+                drawWavePart(target, waveDrawables.get(i), true);
+            }
+            lineLayers[i].end(canvas);
+            waveDirty[i] = false;
+        }
+        if (!isFocusOverlayEnabled) { // 开启焦点覆盖层时焦点圆点在drawFocusOverlay()中单独画
+            canvas.translate(axisArea.left, axisArea.top);
+            for (int i = 0; i < size; i++) {
+                SmoothWaveDrawable drawable = waveDrawables.get(i);
+                float offsetX = drawable.getDrawOffsetX();
+                canvas.translate(offsetX, 0);
+                drawable.drawFocusDot(canvas);
+                canvas.translate(-offsetX, 0);
+            }
+        }
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * 画出一条波形的填充色和包络带,或者线条.画布不需要预先平移
+     *
+     * @param canvas 画布
+     * @param drawable 波形
+     * @param isLine true画线条,false画填充色和包络带
+     */
+    private void drawWavePart(Canvas canvas, SmoothWaveDrawable drawable, boolean isLine) {
+        int saveCount = canvas.save();
+        canvas.translate(axisArea.left + drawable.getDrawOffsetX(), axisArea.top);
+        if (isLine) {
+            drawable.drawLine(canvas);
+        } else {
+            drawable.drawFill(canvas);
+            drawable.drawEnvelope(canvas);
+        }
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * 设置是否批量绘制所有波形.默认开启
+     *
+     * @param isBatchDrawEnabled true批量绘制
+     */
+    public void setBatchDrawEnabled(boolean isBatchDrawEnabled) {
+        if (this.isBatchDrawEnabled != isBatchDrawEnabled) {
+            this.isBatchDrawEnabled = isBatchDrawEnabled;
+            invalidateStatic();
+        }
+    }
+
+    /**
+     * 给所有波形和坐标轴设置同一个坐标轴范围.范围数值没变时各波形不会重新计算几何缓存
+     *
+     * @param axisXRange 要展示的X轴范围
+     * @param axisYRange 要展示的Y轴范围
+     */
+    public void setAxisRange(Range<Float> axisXRange, Range<Float> axisYRange) {
+        if (waveDrawables != null) {
+            for (SmoothWaveDrawable drawable : waveDrawables) {
+                drawable.setAxisXRange(axisXRange);
+                drawable.setAxisYRange(axisYRange);
+            }
+        }
+        if (axisDrawable != null) {
+            axisDrawable.setAxisXRange(axisXRange);
+            axisDrawable.setAxisYRange(axisYRange);
+        }
+        invalidateStatic();
+    }
+
+    /**
+     * 设置某一条波形的数据(列式数据,不需要为每个数据点创建对象)
+     *
+     * @param seriesIndex 波形序号
+     * @param xs 数据点X坐标
+     * @param ys 数据点Y坐标
+     * @param count 有效数据点个数
+     * @param axisXRange 要展示的X轴范围
+     * @param axisYRange 要展示的Y轴范围
+     */
+    public void setData(int seriesIndex, float[] xs, float[] ys, int count, Range<Float> axisXRange,
+                        Range<Float> axisYRange) {
+        if (waveDrawables == null || seriesIndex < 0 || seriesIndex >= waveDrawables.size()) {
+            return;
+        }
+        waveDrawables.get(seriesIndex).setData(xs, ys, count, axisXRange, axisYRange);
+        if (axisDrawable != null) {
+            axisDrawable.setAxisXRange(axisXRange);
+            axisDrawable.setAxisYRange(axisYRange);
+        }
+        invalidateStatic();
+    }
+
+    /**
+     * 设置某一条波形的数据
+     *
+     * @param seriesIndex 波形序号
+     * @param points 数据点
+     * @param axisXRange 要展示的X轴范围
+     * @param axisYRange 要展示的Y轴范围
+     */
+    public void setData(int seriesIndex, List<PointF> points, Range<Float> axisXRange, Range<Float> axisYRange) {
+        if (waveDrawables == null || seriesIndex < 0 || seriesIndex >= waveDrawables.size()) {
+            return;
+        }
+        waveDrawables.get(seriesIndex).setData(points, axisXRange, axisYRange);
+        if (axisDrawable != null) {
+            axisDrawable.setAxisXRange(axisXRange);
+            axisDrawable.setAxisYRange(axisYRange);
         }
+        invalidateStatic();
     }
 
     private void initAxisArea() {
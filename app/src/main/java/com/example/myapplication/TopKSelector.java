@@ -0,0 +1,461 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * 项目：  My Application
+ * 类名：  TopKSelector.java
+ * 时间：  2026/10/18 20:40
+ * 描述：  流式Top-K选择.按键保存数值,排名最高的K个放在有界小顶堆中(堆顶是第K名),其余的放在大顶堆中(堆顶是第K+1名).
+ * 两个堆都记录每个键所在的位置,修改某个键的数值时只在它所在的堆里原地上浮/下沉,再比较两个堆顶,
+ * 最多交换一次即可恢复两个堆的关系,堆的调整是O(log n),不需要重新排序全部数据.
+ * 前K名另外按名次顺序保存在数组中,读取排名时直接拷贝,也可以只读取某一段名次(例如滚动时可见的部分).
+ * 维护这个数组的开销与名次变化跨过的距离成正比:二分查找新位置后移动中间的部分,进入或离开前K名时最坏是O(K).
+ * K很大时(例如虚拟化滚动模式保留全部名次)不要逐个update()加入大量新键,应该clear()后用add()批量加入,
+ * 在下一次读取或修改时一次排序建立两个堆和名次数组,O(n log n).
+ * 数值相同时先加入的排在前面,结果与API版本无关.
+ */
+class TopKSelector {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * 键对应的槽位
+     */
+    private final HashMap<Object, Integer> slots = new HashMap<>();
+    /**
+     * 按槽位保存的键、数值、加入顺序、在所在堆中的位置、是否在前K名的堆中
+     */
+    private Object[] keys = new Object[INITIAL_CAPACITY];
+    private int[] values = new int[INITIAL_CAPACITY];
+    private long[] orders = new long[INITIAL_CAPACITY];
+    private int[] positions = new int[INITIAL_CAPACITY];
+    private boolean[] isTop = new boolean[INITIAL_CAPACITY];
+    /**
+     * 删除键后空出来的槽位
+     */
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    private int slotCount;
+    private long nextOrder;
+    /**
+     * 前K名的小顶堆和其余数据的大顶堆,保存槽位
+     */
+    private int[] topHeap = new int[INITIAL_CAPACITY];
+    private int topSize;
+    private int[] restHeap = new int[INITIAL_CAPACITY];
+    private int restSize;
+    /**
+     * 前K名按名次从高到低排列的槽位,以及按槽位保存的在其中的位置
+     */
+    private int[] ranked = new int[INITIAL_CAPACITY];
+    private int[] rankOf = new int[INITIAL_CAPACITY];
+    private int rankedCount;
+    /**
+     * add()批量加入、还没有放入堆中的槽位,以及排序用的临时数组
+     */
+    private int[] pendingSlots = new int[INITIAL_CAPACITY];
+    private int pendingCount;
+    private long[] sortKeys = new long[0];
+    private int capacity;
+
+    /**
+     * @param capacity 保留前多少名
+     */
+    TopKSelector(int capacity) {
+        this.capacity = Math.max(0, capacity);
+    }
+
+    /**
+     * 修改保留的名次个数,在两个堆之间移动差额部分
+     *
+     * @param capacity 保留前多少名
+     */
+    void setCapacity(int capacity) {
+        flushPending();
+        this.capacity = Math.max(0, capacity);
+        balance();
+    }
+
+    /**
+     * 设置键的数值,新的键直接加入
+     *
+     * @param key 键
+     * @param value 数值
+     * @return false数值没有变化
+     */
+    boolean update(Object key, int value) {
+        flushPending();
+        Integer slotObject = slots.get(key);
+        if (slotObject == null) {
+            int slot = obtainSlot();
+            keys[slot] = key;
+            values[slot] = value;
+            orders[slot] = nextOrder++;
+            slots.put(key, slot);
+            push(topSize < capacity, slot);
+            balance();
+            return true;
+        }
+        int slot = slotObject;
+        if (values[slot] == value) {
+            return false;
+        }
+        values[slot] = value;
+        fix(isTop[slot], positions[slot]);
+        if (isTop[slot]) {
+            moveRanked(slot);
+        }
+        balance();
+        return true;
+    }
+
+    /**
+     * 批量加入新的键,用于clear()之后整组替换数据.只保存数值,在下一次读取或修改时一次排序放入两个堆,
+     * 避免逐个update()时每个新键都移动名次数组.已经有数据或键已存在时按update()处理
+     *
+     * @param key 键
+     * @param value 数值
+     */
+    void add(Object key, int value) {
+        if (topSize + restSize > 0 || slots.containsKey(key)) {
+            update(key, value);
+            return;
+        }
+        int slot = obtainSlot();
+        keys[slot] = key;
+        values[slot] = value;
+        orders[slot] = nextOrder++;
+        slots.put(key, slot);
+        if (pendingCount == pendingSlots.length) {
+            pendingSlots = Arrays.copyOf(pendingSlots, pendingCount * 2);
+        }
+        pendingSlots[pendingCount++] = slot;
+    }
+
+    /**
+     * 删除键
+     *
+     * @param key 键
+     * @return false键不存在
+     */
+    boolean remove(Object key) {
+        flushPending();
+        Integer slotObject = slots.remove(key);
+        if (slotObject == null) {
+            return false;
+        }
+        int slot = slotObject;
+        removeAt(isTop[slot], positions[slot]);
+        keys[slot] = null;
+        freeSlots[freeCount++] = slot;
+        balance();
+        return true;
+    }
+
+    void clear() {
+        slots.clear();
+        Arrays.fill(keys, 0, slotCount, null);
+        slotCount = 0;
+        freeCount = 0;
+        topSize = 0;
+        restSize = 0;
+        rankedCount = 0;
+        pendingCount = 0;
+    }
+
+    /**
+     * @return 全部键的个数
+     */
+    int size() {
+        return topSize + restSize + pendingCount;
+    }
+
+    /**
+     * @return 前K名实际的个数
+     */
+    int getTopSize() {
+        flushPending();
+        return topSize;
+    }
+
+    /**
+     * 按名次从高到低输出前K名,O(K),不分配对象
+     *
+     * @param outKeys 输出的键,长度不小于getTopSize()
+     * @param outValues 输出的数值,长度不小于getTopSize()
+     * @return 输出的个数
+     */
+    int getRanking(Object[] outKeys, int[] outValues) {
+        return getRanking(0, Integer.MAX_VALUE, outKeys, outValues);
+    }
+
+    /**
+     * 按名次从高到低输出前K名中的一段,开销只与输出的个数有关,不分配对象
+     *
+     * @param from 第一个名次(从0开始)
+     * @param count 最多输出的个数
+     * @param outKeys 输出的键,长度不小于count
+     * @param outValues 输出的数值,长度不小于count
+     * @return 输出的个数,超出前K名的部分不输出
+     */
+    int getRanking(int from, int count, Object[] outKeys, int[] outValues) {
+        flushPending();
+        int size = Math.max(0, Math.min(count, rankedCount - from));
+        for (int i = 0; i < size; i++) {
+            int slot = ranked[from + i];
+            outKeys[i] = keys[slot];
+            outValues[i] = values[slot];
+        }
+        return size;
+    }
+
+    /**
+     * @param rank 名次(从0开始),必须小于getTopSize()
+     * @return 该名次的数值
+     */
+    int getValue(int rank) {
+        flushPending();
+        return values[ranked[rank]];
+    }
+
+    /**
+     * 把add()批量加入的槽位一次排序后放入两个堆.此时两个堆都是空的:按名次从高到低排列的数组本身就是
+     * 其余数据的大顶堆,倒过来就是前K名的小顶堆,不需要逐个上浮
+     */
+    private void flushPending() {
+        int count = pendingCount;
+        if (count == 0) {
+            return;
+        }
+        pendingCount = 0;
+        if (sortKeys.length < count) {
+            sortKeys = new long[count];
+        }
+        // 高32位是取反的数值(数值大的在前),低32位是加入顺序,排序后同时得到名次和原来的序号
+        for (int i = 0; i < count; i++) {
+            sortKeys[i] = ((long) ~values[pendingSlots[i]] << 32) | i;
+        }
+        Arrays.sort(sortKeys, 0, count);
+        int top = Math.min(capacity, count);
+        ensureHeapCapacity(count);
+        for (int rank = 0; rank < count; rank++) {
+            int slot = pendingSlots[(int) sortKeys[rank]];
+            if (rank < top) {
+                ranked[rank] = slot;
+                rankOf[slot] = rank;
+                topHeap[top - 1 - rank] = slot;
+                positions[slot] = top - 1 - rank;
+                isTop[slot] = true;
+            } else {
+                restHeap[rank - top] = slot;
+                positions[slot] = rank - top;
+                isTop[slot] = false;
+            }
+        }
+        topSize = top;
+        restSize = count - top;
+        rankedCount = top;
+    }
+
+    /**
+     * 恢复两个堆之间的关系:前K名的堆不超过容量、有空位时从其余数据中补齐、第K名不低于第K+1名
+     */
+    private void balance() {
+        while (topSize > capacity) {
+            push(false, pop(true));
+        }
+        while (topSize < capacity && restSize > 0) {
+            push(true, pop(false));
+        }
+        if (topSize > 0 && restSize > 0 && isAbove(restHeap[0], topHeap[0])) {
+            int lowestTop = pop(true);
+            push(true, pop(false));
+            push(false, lowestTop);
+        }
+    }
+
+    /**
+     * 槽位a的排名是否高于槽位b
+     */
+    private boolean isAbove(int a, int b) {
+        return values[a] > values[b] || (values[a] == values[b] && orders[a] < orders[b]);
+    }
+
+    /**
+     * 在堆中槽位a是否应该排在槽位b上面.前K名的堆是小顶堆,排名低的在上;其余数据的堆是大顶堆,排名高的在上
+     */
+    private boolean isBefore(boolean isTopHeap, int a, int b) {
+        return isTopHeap ? isAbove(b, a) : isAbove(a, b);
+    }
+
+    private void push(boolean isTopHeap, int slot) {
+        int size = isTopHeap ? topSize++ : restSize++;
+        ensureHeapCapacity(size + 1);
+        int[] heap = isTopHeap ? topHeap : restHeap;
+        heap[size] = slot;
+        isTop[slot] = isTopHeap;
+        siftUp(isTopHeap, size);
+        if (isTopHeap) {
+            insertRanked(slot);
+        }
+    }
+
+    private int pop(boolean isTopHeap) {
+        int slot = (isTopHeap ? topHeap : restHeap)[0];
+        removeAt(isTopHeap, 0);
+        return slot;
+    }
+
+    private void removeAt(boolean isTopHeap, int position) {
+        int[] heap = isTopHeap ? topHeap : restHeap;
+        if (isTopHeap) {
+            removeRanked(heap[position]);
+        }
+        int last = isTopHeap ? --topSize : --restSize;
+        if (position != last) {
+            heap[position] = heap[last];
+            positions[heap[position]] = position;
+            fix(isTopHeap, position);
+        }
+    }
+
+    private void fix(boolean isTopHeap, int position) {
+        int[] heap = isTopHeap ? topHeap : restHeap;
+        if (position > 0 && isBefore(isTopHeap, heap[position], heap[(position - 1) >> 1])) {
+            siftUp(isTopHeap, position);
+        } else {
+            siftDown(isTopHeap, position);
+        }
+    }
+
+    private void siftUp(boolean isTopHeap, int position) {
+        int[] heap = isTopHeap ? topHeap : restHeap;
+        int slot = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >> 1;
+            if (!isBefore(isTopHeap, slot, heap[parent])) {
+                break;
+            }
+            heap[position] = heap[parent];
+            positions[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = slot;
+        positions[slot] = position;
+    }
+
+    private void siftDown(boolean isTopHeap, int position) {
+        int[] heap = isTopHeap ? topHeap : restHeap;
+        int size = isTopHeap ? topSize : restSize;
+        int slot = heap[position];
+        while (true) {
+            int child = position * 2 + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && isBefore(isTopHeap, heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!isBefore(isTopHeap, heap[child], slot)) {
+                break;
+            }
+            heap[position] = heap[child];
+            positions[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = slot;
+        positions[slot] = position;
+    }
+
+    /**
+     * 槽位进入前K名,按名次插入有序数组
+     */
+    private void insertRanked(int slot) {
+        int rank = findRank(slot, 0, rankedCount);
+        System.arraycopy(ranked, rank, ranked, rank + 1, rankedCount - rank);
+        rankedCount++;
+        ranked[rank] = slot;
+        updateRankOf(rank, rankedCount);
+    }
+
+    /**
+     * 槽位离开前K名,从有序数组中移除
+     */
+    private void removeRanked(int slot) {
+        int rank = rankOf[slot];
+        rankedCount--;
+        System.arraycopy(ranked, rank + 1, ranked, rank, rankedCount - rank);
+        updateRankOf(rank, rankedCount);
+    }
+
+    /**
+     * 前K名中槽位的数值变化后移动到新的名次,只移动两个名次之间的部分
+     */
+    private void moveRanked(int slot) {
+        int rank = rankOf[slot];
+        if (rank > 0 && isAbove(slot, ranked[rank - 1])) { // 名次上升
+            int newRank = findRank(slot, 0, rank);
+            System.arraycopy(ranked, newRank, ranked, newRank + 1, rank - newRank);
+            ranked[newRank] = slot;
+            updateRankOf(newRank, rank + 1);
+        } else if (rank < rankedCount - 1 && isAbove(ranked[rank + 1], slot)) { // 名次下降
+            int newRank = findRank(slot, rank + 1, rankedCount) - 1;
+            System.arraycopy(ranked, rank + 1, ranked, rank, newRank - rank);
+            ranked[newRank] = slot;
+            updateRankOf(rank, newRank + 1);
+        }
+    }
+
+    /**
+     * 在有序数组的[from, to)中二分查找第一个排名低于槽位slot的位置
+     *
+     * @return 位置,都高于slot时返回to
+     */
+    private int findRank(int slot, int from, int to) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (isAbove(slot, ranked[middle])) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private void updateRankOf(int from, int to) {
+        for (int rank = from; rank < to; rank++) {
+            rankOf[ranked[rank]] = rank;
+        }
+    }
+
+    private int obtainSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == keys.length) {
+            int length = slotCount * 2;
+            keys = Arrays.copyOf(keys, length);
+            values = Arrays.copyOf(values, length);
+            orders = Arrays.copyOf(orders, length);
+            positions = Arrays.copyOf(positions, length);
+            isTop = Arrays.copyOf(isTop, length);
+            rankOf = Arrays.copyOf(rankOf, length);
+            freeSlots = Arrays.copyOf(freeSlots, length);
+        }
+        return slotCount++;
+    }
+
+    private void ensureHeapCapacity(int size) {
+        if (topHeap.length < size) {
+            topHeap = Arrays.copyOf(topHeap, Math.max(size, topHeap.length * 2));
+            ranked = Arrays.copyOf(ranked, topHeap.length);
+        }
+        if (restHeap.length < size) {
+            restHeap = Arrays.copyOf(restHeap, Math.max(size, restHeap.length * 2));
+        }
+    }
+}
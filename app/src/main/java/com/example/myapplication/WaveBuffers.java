@@ -0,0 +1,47 @@
+package com.example.myapplication;
+
+import static com.example.myapplication.SmoothWaveDrawable.ASSIST_STRIDE;
+
+/**
+ * 项目：  My Application
+ * 类名：  WaveBuffers.java
+ * 时间：  2026/10/18 14:20
+ * 描述：  波形几何计算用的临时缓冲区.计算结果最终保存在Path中,这些数组只在计算过程中使用,
+ * 因此同一个View中的多条波形可以共用一份,而不是每条波形各自持有一份与可见点数同样大的数组.
+ */
+class WaveBuffers {
+    /**
+     * 要展示的数据X坐标.先写入原始数据坐标,在WaveGeometry.build()中就地转换成像素坐标
+     */
+    float[] xs = new float[0];
+    /**
+     * 要展示的数据Y坐标,同xs
+     */
+    float[] ys = new float[0];
+    /**
+     * 每个基准点左右两个辅助点的坐标,按序号与xs/ys对齐,每个基准点占ASSIST_STRIDE个float
+     */
+    float[] assistPoints = new float[0];
+    /**
+     * 多分辨率索引模式下每个展示点对应的桶内最小/最大Y的像素坐标,按序号与xs对齐
+     */
+    float[] minYs = new float[0];
+    float[] maxYs = new float[0];
+
+    void ensureCapacity(int capacity) {
+        if (xs.length >= capacity) {
+            return;
+        }
+        xs = new float[capacity];
+        ys = new float[capacity];
+        assistPoints = new float[capacity * ASSIST_STRIDE];
+    }
+
+    void ensureEnvelopeCapacity(int capacity) {
+        if (minYs.length >= capacity) {
+            return;
+        }
+        minYs = new float[Math.max(capacity, xs.length)];
+        maxYs = new float[minYs.length];
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+
+/**
+ * 项目：  My Application
+ * 类名：  WaveCrosshair.java
+ * 时间：  2026/10/18 16:30
+ * 描述：  十字线命中结果.每条波形一组:离触摸点最近的数据点序号、该点的X/Y,以及触摸点X处曲线上的Y.
+ * 由调用方创建并反复传给SmoothWaveView.hitTest(),只在波形条数增加时扩容,每次触摸事件都调用也不会分配内存.
+ */
+public class WaveCrosshair {
+    /**
+     * 有效的波形条数
+     */
+    private int seriesCount;
+    /**
+     * 触摸点对应的X坐标(基于第一条波形的原始数据)
+     */
+    private float touchX = Float.NaN;
+    private int[] indexes = new int[0];
+    private float[] xs = new float[0];
+    private float[] ys = new float[0];
+    private float[] curveYs = new float[0];
+    /**
+     * 坐标轴上离触摸点最近的刻度序号
+     */
+    private int axisIndex = -1;
+
+    void reset(int seriesCount) {
+        if (indexes.length < seriesCount) {
+            indexes = new int[seriesCount];
+            xs = new float[seriesCount];
+            ys = new float[seriesCount];
+            curveYs = new float[seriesCount];
+        }
+        this.seriesCount = seriesCount;
+        touchX = Float.NaN;
+        axisIndex = -1;
+        Arrays.fill(indexes, 0, seriesCount, -1);
+        Arrays.fill(curveYs, 0, seriesCount, Float.NaN);
+    }
+
+    void set(int series, int index, float x, float y, float curveY) {
+        indexes[series] = index;
+        xs[series] = x;
+        ys[series] = y;
+        curveYs[series] = curveY;
+    }
+
+    void setTouchX(float touchX) {
+        this.touchX = touchX;
+    }
+
+    void setAxisIndex(int axisIndex) {
+        this.axisIndex = axisIndex;
+    }
+
+    public int getSeriesCount() {
+        return seriesCount;
+    }
+
+    public float getTouchX() {
+        return touchX;
+    }
+
+    /**
+     * 获取某条波形上离触摸点最近的数据点序号
+     *
+     * @param series 波形序号
+     * @return 数据点序号,-1表示该波形没有命中
+     */
+    public int getIndex(int series) {
+        return indexes[series];
+    }
+
+    public float getX(int series) {
+        return xs[series];
+    }
+
+    public float getY(int series) {
+        return ys[series];
+    }
+
+    /**
+     * 获取触摸点X处曲线上的Y(与画出的三次贝塞尔曲线一致)
+     *
+     * @param series 波形序号
+     * @return Y坐标,没有要求计算或没有命中时为NaN
+     */
+    public float getCurveY(int series) {
+        return curveYs[series];
+    }
+
+    public int getAxisIndex() {
+        return axisIndex;
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.myapplication;
+
+import android.graphics.Path;
+
+import static com.example.myapplication.SmoothWaveDrawable.ASSIST_LEFT_X;
+import static com.example.myapplication.SmoothWaveDrawable.ASSIST_LEFT_Y;
+import static com.example.myapplication.SmoothWaveDrawable.ASSIST_RIGHT_X;
+import static com.example.myapplication.SmoothWaveDrawable.ASSIST_RIGHT_Y;
+import static com.example.myapplication.SmoothWaveDrawable.ASSIST_STRIDE;
+
+/**
+ * 项目：  My Application
+ * 类名：  WaveGeometry.java
+ * 时间：  2026/10/18 15:10
+ * 描述：  一帧波形的几何结果:原始数据到像素坐标的转换参数、可见范围以及波形线条/填充/包络带的Path.
+ * 后台计算时drawable持有两份,一份给UI线程绘制,另一份交给工作线程计算,算完后在UI线程交换,
+ * 交出去之后UI线程不再修改它,工作线程也只在拿到它之后才修改,因此不需要加锁.
+ */
+class WaveGeometry {
+    /**
+     * 波形线条
+     */
+    final Path path = new Path();
+    /**
+     * 波形下方和X轴之间的填充区域
+     */
+    final Path wavePath = new Path();
+    /**
+     * 桶内最小/最大值包络带
+     */
+    final Path envelopePath = new Path();
+
+    /**
+     * 要展示的数据点个数
+     */
+    int count;
+    /**
+     * 要展示的第一个/最后一个数据点在原始数据中的序号
+     */
+    int firstIndex;
+    int lastIndex = -1;
+    /**
+     * 展示的数据是否来自多分辨率索引(此时缓冲区中有桶内最小/最大值)
+     */
+    boolean isPyramid;
+    /**
+     * 是否需要生成包络带
+     */
+    boolean isEnvelopeEnabled;
+
+    /**
+     * 原始数据到像素坐标的转换参数
+     */
+    float scaleX;
+    float scaleY;
+    float originX;
+    float originY;
+    float pixelHeight;
+    float halfStroke;
+    /**
+     * 填充区域底边的Y坐标
+     */
+    int bottom;
+
+    /**
+     * 展示点像素Y坐标的最小值/最大值
+     */
+    float minY = 0;
+    float maxY = 600;
+
+    /**
+     * 计算时的几何输入版本号和原始数据版本号
+     */
+    int geometryVersion = -1;
+    int seriesVersion = -1;
+
+    void reset() {
+        count = 0;
+        firstIndex = 0;
+        lastIndex = -1;
+        isPyramid = false;
+    }
+
+    /**
+     * 设置原始数据到像素坐标的转换参数
+     *
+     * @param axisXLower X轴范围下限
+     * @param axisXUpper X轴范围上限
+     * @param axisYLower Y轴范围下限
+     * @param axisYUpper Y轴范围上限
+     * @param width 可绘制区域宽度
+     * @param height 可绘制区域高度
+     * @param strokeWidth 线宽,上下各留出半个线宽避免线条被裁掉
+     */
+    void setTransform(float axisXLower, float axisXUpper, float axisYLower, float axisYUpper, int width, int height,
+                      int strokeWidth) {
+        pixelHeight = height - strokeWidth;
+        scaleX = width / (axisXUpper - axisXLower); // 原始数据X轴每1个单位占几个像素点
+        scaleY = pixelHeight / (axisYUpper - axisYLower); // 原始数据Y轴每1个单位占几个像素点
+        originX = axisXLower;
+        originY = axisYLower;
+        halfStroke = strokeWidth / 2f;
+        bottom = height;
+    }
+
+    float toPixelX(float dataX) {
+        return (dataX - originX) * scaleX;
+    }
+
+    float toPixelY(float dataY) {
+        return pixelHeight - (dataY - originY) * scaleY + halfStroke;
+    }
+
+    /**
+     * 把缓冲区中前count个基于原始数据的坐标就地转换成像素坐标,计算辅助点,并生成Path.
+     * 只读写自身和传入的缓冲区,可以在工作线程执行
+     *
+     * @param buffers 缓冲区,xs/ys(多分辨率索引模式下还有minYs/maxYs)中是基于原始数据的坐标
+     */
+    void build(WaveBuffers buffers) {
+        float[] xs = buffers.xs;
+        float[] ys = buffers.ys;
+        float minValue = Float.MAX_VALUE;
+        float maxValue = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            xs[i] = toPixelX(xs[i]);
+            ys[i] = toPixelY(ys[i]);
+            minValue = Math.min(minValue, ys[i]);
+            maxValue = Math.max(maxValue, ys[i]);
+        }
+        minY = minValue;
+        maxY = maxValue;
+        boolean hasEnvelope = isPyramid && isEnvelopeEnabled;
+        if (hasEnvelope) {
+            for (int i = 0; i < count; i++) {
+                buffers.minYs[i] = toPixelY(buffers.minYs[i]);
+                buffers.maxYs[i] = toPixelY(buffers.maxYs[i]);
+            }
+        }
+        SmoothWaveDrawable.calAssistPoints(xs, ys, count, buffers.assistPoints);
+        buildPaths(buffers, hasEnvelope);
+    }
+
+    private void buildPaths(WaveBuffers buffers, boolean hasEnvelope) {
+        path.reset();
+        wavePath.reset();
+        envelopePath.reset();
+        if (count == 0) {
+            return;
+        }
+        float[] xs = buffers.xs;
+        float[] ys = buffers.ys;
+        path.incReserve(count * 3);
+        wavePath.incReserve(count * 3 + 4);
+        path.moveTo(xs[0], ys[0]);
+
+        float left = Math.min(0, xs[0]); // 第一个点在左边界之外(例如手势平移时多转换的数据)时从该点开始填充
+        wavePath.moveTo(left, bottom);
+        wavePath.lineTo(left, ys[0]);
+        wavePath.lineTo(xs[0], ys[0]);
+
+        float[] assist = buffers.assistPoints;
+        for (int i = 0, offset = 0; i < count - 1; i++, offset += ASSIST_STRIDE) {
+            float assistX1 = assist[offset + ASSIST_RIGHT_X];
+            float assistY1 = assist[offset + ASSIST_RIGHT_Y];
+            float assistX2 = assist[offset + ASSIST_STRIDE + ASSIST_LEFT_X];
+            float assistY2 = assist[offset + ASSIST_STRIDE + ASSIST_LEFT_Y];
+            float nextX = xs[i + 1];
+            float nextY = ys[i + 1];
+            path.cubicTo(assistX1, assistY1, assistX2, assistY2, nextX, nextY);
+            wavePath.cubicTo(assistX1, assistY1, assistX2, assistY2, nextX, nextY);
+        }
+
+        wavePath.lineTo(xs[count - 1], bottom);
+        wavePath.close();
+
+        if (hasEnvelope) { // 沿最大值从左到右,再沿最小值从右到左,围成包络带
+            envelopePath.incReserve(count * 2);
+            envelopePath.moveTo(xs[0], buffers.maxYs[0]);
+            for (int i = 1; i < count; i++) {
+                envelopePath.lineTo(xs[i], buffers.maxYs[i]);
+            }
+            for (int i = count - 1; i >= 0; i--) {
+                envelopePath.lineTo(xs[i], buffers.minYs[i]);
+            }
+            envelopePath.close();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.myapplication;
+
+import android.graphics.PointF;
+import android.util.Range;
+
+import java.util.List;
+
+/**
+ * 项目：  My Application
+ * 类名：  WaveMorph.java
+ * 时间：  2026/10/18 17:50
+ * 描述：  两组波形数据之间的过渡动画数据.开始时把新旧数据重采样到同一组X网格上(新旧数据各自按X范围归一化后的位置取并集),
+ * 此后每一帧只在预先分配的数组上做线性插值,不创建对象.旧数据先换算到新坐标轴范围下,
+ * 第一帧在屏幕上与旧数据重合,最后一帧与新数据重合,坐标轴范围在开始时一次切换到新范围.
+ * 打断正在进行的过渡时,当前插值结果只重采样到新数据的网格上,反复打断时网格点个数不会累加.
+ */
+class WaveMorph {
+    /**
+     * 归一化位置相差不超过该值的网格点视为重合
+     */
+    private static final float MERGE_EPSILON = 1e-6f;
+
+    /**
+     * 重采样后的旧数据/新数据,按序号对齐
+     */
+    private float[] fromXs = new float[0];
+    private float[] fromYs = new float[0];
+    private float[] toXs = new float[0];
+    private float[] toYs = new float[0];
+    /**
+     * 当前帧插值结果
+     */
+    float[] xs = new float[0];
+    float[] ys = new float[0];
+    /**
+     * 网格点个数
+     */
+    int count;
+    /**
+     * 新数据原样拷贝,动画结束时整体替换成它
+     */
+    float[] targetXs = new float[0];
+    float[] targetYs = new float[0];
+    int targetCount;
+
+    void setTarget(float[] xs, float[] ys, int count) {
+        if (xs == null || ys == null || count <= 0) {
+            targetCount = 0;
+            return;
+        }
+        targetCount = Math.min(count, Math.min(xs.length, ys.length));
+        ensureTargetCapacity(targetCount);
+        System.arraycopy(xs, 0, targetXs, 0, targetCount);
+        System.arraycopy(ys, 0, targetYs, 0, targetCount);
+    }
+
+    void setTarget(List<PointF> points) {
+        targetCount = points == null ? 0 : points.size();
+        ensureTargetCapacity(targetCount);
+        for (int i = 0; i < targetCount; i++) {
+            PointF pointF = points.get(i);
+            targetXs[i] = pointF.x;
+            targetYs[i] = pointF.y;
+        }
+    }
+
+    /**
+     * 把旧数据和新数据重采样到同一组X网格上
+     *
+     * @param from 旧数据,X坐标必须单调不减
+     * @param fromAxisX 旧数据的X轴范围
+     * @param fromAxisY 旧数据的Y轴范围
+     * @param toAxisX 新数据的X轴范围
+     * @param toAxisY 新数据的Y轴范围
+     * @param isTargetGridOnly true只使用新数据的网格(旧数据是被打断的过渡动画的插值结果,其网格已经是上一次的并集)
+     * @return false新旧数据有一方为空或新数据X坐标不是单调不减,无法过渡
+     */
+    boolean prepare(WaveSeries from, Range<Float> fromAxisX, Range<Float> fromAxisY, Range<Float> toAxisX,
+                    Range<Float> toAxisY, boolean isTargetGridOnly) {
+        int oldCount = from.size();
+        int newCount = targetCount;
+        if (oldCount == 0 || newCount == 0) {
+            return false;
+        }
+        for (int i = 1; i < newCount; i++) {
+            if (targetXs[i] < targetXs[i - 1]) {
+                return false;
+            }
+        }
+        ensureCapacity(oldCount + newCount);
+
+        // 新旧数据各自按X范围归一化到[0, 1],合并成一组有序网格(暂存在xs中)
+        float oldStart = from.getX(0);
+        float oldSpan = from.getX(oldCount - 1) - oldStart;
+        float oldInverse = oldSpan > 0 ? 1 / oldSpan : 0;
+        float newStart = targetXs[0];
+        float newSpan = targetXs[newCount - 1] - newStart;
+        float newInverse = newSpan > 0 ? 1 / newSpan : 0;
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        if (isTargetGridOnly) { // 跳过旧数据的网格点,只在新数据的位置上对旧数据重采样
+            i = oldCount;
+        }
+        while (i < oldCount || j < newCount) {
+            float oldU = i < oldCount ? (from.getX(i) - oldStart) * oldInverse : Float.MAX_VALUE;
+            float newU = j < newCount ? (targetXs[j] - newStart) * newInverse : Float.MAX_VALUE;
+            if (oldU <= newU) {
+                xs[k++] = oldU;
+                i++;
+                if (newU - oldU <= MERGE_EPSILON) { // 重合的位置只保留一个网格点
+                    j++;
+                }
+            } else {
+                xs[k++] = newU;
+                j++;
+            }
+        }
+        count = k;
+
+        // 沿网格依次线性插值,旧数据再换算到新坐标轴范围下
+        float scaleX = getScale(fromAxisX, toAxisX);
+        float scaleY = getScale(fromAxisY, toAxisY);
+        float fromLowerX = fromAxisX == null ? 0 : fromAxisX.getLower();
+        float fromLowerY = fromAxisY == null ? 0 : fromAxisY.getLower();
+        float toLowerX = toAxisX == null || fromAxisX == null ? fromLowerX : toAxisX.getLower();
+        float toLowerY = toAxisY == null || fromAxisY == null ? fromLowerY : toAxisY.getLower();
+        int oldIndex = 0;
+        int newIndex = 0;
+        for (k = 0; k < count; k++) {
+            float u = xs[k];
+            float oldX = oldStart + u * oldSpan;
+            while (oldIndex < oldCount - 2 && from.getX(oldIndex + 1) <= oldX) {
+                oldIndex++;
+            }
+            float oldY = lerpY(from.getX(oldIndex), from.getY(oldIndex),
+                    from.getX(Math.min(oldIndex + 1, oldCount - 1)), from.getY(Math.min(oldIndex + 1, oldCount - 1)),
+                    oldX);
+            fromXs[k] = toLowerX + (oldX - fromLowerX) * scaleX;
+            fromYs[k] = toLowerY + (oldY - fromLowerY) * scaleY;
+
+            float newX = newStart + u * newSpan;
+            while (newIndex < newCount - 2 && targetXs[newIndex + 1] <= newX) {
+                newIndex++;
+            }
+            int nextIndex = Math.min(newIndex + 1, newCount - 1);
+            toXs[k] = newX;
+            toYs[k] = lerpY(targetXs[newIndex], targetYs[newIndex], targetXs[nextIndex], targetYs[nextIndex], newX);
+        }
+        return true;
+    }
+
+    /**
+     * 计算当前帧的插值结果,写入xs/ys
+     *
+     * @param fraction 动画进度(0-1)
+     */
+    void interpolate(float fraction) {
+        for (int i = 0; i < count; i++) {
+            xs[i] = fromXs[i] + (toXs[i] - fromXs[i]) * fraction;
+            ys[i] = fromYs[i] + (toYs[i] - fromYs[i]) * fraction;
+        }
+    }
+
+    /**
+     * 旧坐标轴范围的1个单位在新坐标轴范围下占几个单位
+     */
+    private static float getScale(Range<Float> from, Range<Float> to) {
+        if (from == null || to == null) {
+            return 1;
+        }
+        float fromSpan = from.getUpper() - from.getLower();
+        float toSpan = to.getUpper() - to.getLower();
+        return fromSpan == 0 ? 1 : toSpan / fromSpan;
+    }
+
+    private static float lerpY(float x1, float y1, float x2, float y2, float x) {
+        if (x2 <= x1) {
+            return y1;
+        }
+        float t = Math.max(0, Math.min(1, (x - x1) / (x2 - x1)));
+        return y1 + (y2 - y1) * t;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (xs.length >= capacity) {
+            return;
+        }
+        fromXs = new float[capacity];
+        fromYs = new float[capacity];
+        toXs = new float[capacity];
+        toYs = new float[capacity];
+        xs = new float[capacity];
+        ys = new float[capacity];
+    }
+
+    private void ensureTargetCapacity(int capacity) {
+        if (targetXs.length >= capacity) {
+            return;
+        }
+        targetXs = new float[capacity];
+        targetYs = new float[capacity];
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+
+/**
+ * 项目：  My Application
+ * 类名：  WavePyramid.java
+ * 时间：  2026/10/18 11:40
+ * 描述：  波形数据的多分辨率索引(类似mipmap).第L层的第b个桶汇总原始数据[b * 2^L, (b + 1) * 2^L)范围内的
+ * 最小Y、最大Y、平均X、平均Y(序号为绝对序号).第L层由第L - 1层两两合并得到,追加数据时每层只需要重算末尾的桶;
+ * 环形缓冲区移除最早的数据时,只丢弃每层开头的桶(部分数据被移除的第一个桶仍保留原来的统计值).
+ */
+public class WavePyramid {
+    /**
+     * 最多支持的层数(第0层是原始数据本身,不在这里保存)
+     */
+    private static final int MAX_LEVEL = 30;
+
+    private final float[][] minYs = new float[MAX_LEVEL + 1][];
+    private final float[][] maxYs = new float[MAX_LEVEL + 1][];
+    private final float[][] meanXs = new float[MAX_LEVEL + 1][];
+    private final float[][] meanYs = new float[MAX_LEVEL + 1][];
+    /**
+     * 每层数组第0个元素对应的桶序号
+     */
+    private final int[] storageBases = new int[MAX_LEVEL + 1];
+
+    /**
+     * 已经建好的最高层级
+     */
+    private int levelCount;
+
+    /**
+     * 建索引时原始数据的绝对结束序号(不包含)
+     */
+    private int builtEnd;
+
+    /**
+     * 建索引时原始数据的重置版本号
+     */
+    private int builtResetVersion = -1;
+
+    /**
+     * 根据原始数据更新索引.原始数据只是追加时增量更新,否则全部重建
+     *
+     * @param series 原始数据
+     */
+    public void update(WaveSeries series) {
+        int absStart = series.getEvictedCount();
+        int absEnd = absStart + series.size();
+        if (series.getResetVersion() != builtResetVersion || absEnd < builtEnd) {
+            builtResetVersion = series.getResetVersion();
+            builtEnd = absStart;
+            levelCount = 0;
+            Arrays.fill(storageBases, 0);
+        }
+        if (absEnd == builtEnd) {
+            return;
+        }
+        int from = Math.max(builtEnd, absStart); // 第一个新增的原始数据绝对序号,包含它的桶都需要重算
+        int level = 0;
+        int bucketCount = absEnd - absStart;
+        while (bucketCount > 1 && level < MAX_LEVEL) {
+            level++;
+            int firstBucket = absStart >> level;
+            int lastBucket = (absEnd - 1) >> level;
+            bucketCount = lastBucket - firstBucket + 1;
+            if (level > levelCount) { // 新增的层级,从第一个桶开始全部计算
+                storageBases[level] = firstBucket;
+            }
+            ensureLevelCapacity(level, firstBucket, lastBucket);
+            int fromBucket = level > levelCount ? firstBucket : Math.max(firstBucket, from >> level);
+            for (int bucket = fromBucket; bucket <= lastBucket; bucket++) {
+                if (level == 1) {
+                    mergeRaw(series, bucket, absStart, absEnd);
+                } else {
+                    mergeLevel(level, bucket, absEnd);
+                }
+            }
+        }
+        levelCount = level;
+        builtEnd = absEnd;
+    }
+
+    /**
+     * 选择一个层级:在保证每个像素至少有一个桶的前提下,尽量选择最粗的层级
+     *
+     * @param pointCount 可见范围内的原始数据点个数
+     * @param pixelWidth 可见范围的像素宽度
+     * @return 层级,0表示直接使用原始数据
+     */
+    public int chooseLevel(int pointCount, int pixelWidth) {
+        if (pixelWidth <= 0 || pointCount <= pixelWidth) {
+            return 0;
+        }
+        int ratio = pointCount / pixelWidth;
+        int level = 31 - Integer.numberOfLeadingZeros(ratio); // floor(log2(ratio))
+        return Math.min(level, levelCount);
+    }
+
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    /**
+     * 获取某一层某个桶内的最小Y
+     *
+     * @param level 层级
+     * @param bucket 桶序号,按绝对序号计算,即 绝对序号 >> level
+     * @return 最小Y
+     */
+    public float getMinY(int level, int bucket) {
+        return minYs[level][bucket - storageBases[level]];
+    }
+
+    public float getMaxY(int level, int bucket) {
+        return maxYs[level][bucket - storageBases[level]];
+    }
+
+    public float getMeanX(int level, int bucket) {
+        return meanXs[level][bucket - storageBases[level]];
+    }
+
+    public float getMeanY(int level, int bucket) {
+        return meanYs[level][bucket - storageBases[level]];
+    }
+
+    /**
+     * 查询原始数据[from, to]范围内Y的最小值和最大值,复杂度O(log n).
+     * 各层的桶按绝对序号对齐,相当于一棵自底向上的线段树:每层只取完全落在范围内、且没被上一层覆盖的首尾桶.
+     * 调用前需要先用同一份数据调用update()
+     *
+     * @param series 原始数据
+     * @param from 第一个数据点序号(包含)
+     * @param to 最后一个数据点序号(包含)
+     * @param out 输出,out[0]为最小值,out[1]为最大值
+     */
+    public void getMinMaxY(WaveSeries series, int from, int to, float[] out) {
+        int evicted = series.getEvictedCount();
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        int left = from + evicted; // 当前层的桶序号,左闭右开
+        int right = to + evicted + 1;
+        for (int level = 0; left < right; level++) {
+            if ((left & 1) == 1) { // 左边的桶是右子桶,上一层的父桶会超出范围,在这一层取
+                min = Math.min(min, level == 0 ? series.getY(left - evicted) : getMinY(level, left));
+                max = Math.max(max, level == 0 ? series.getY(left - evicted) : getMaxY(level, left));
+                left++;
+            }
+            if ((right & 1) == 1) {
+                right--;
+                min = Math.min(min, level == 0 ? series.getY(right - evicted) : getMinY(level, right));
+                max = Math.max(max, level == 0 ? series.getY(right - evicted) : getMaxY(level, right));
+            }
+            left >>= 1;
+            right >>= 1;
+        }
+        out[0] = min;
+        out[1] = max;
+    }
+
+    private void mergeRaw(WaveSeries series, int bucket, int absStart, int absEnd) {
+        int start = Math.max(absStart, bucket << 1);
+        int end = Math.min(absEnd, (bucket << 1) + 2);
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        float sumX = 0;
+        float sumY = 0;
+        for (int i = start - absStart; i < end - absStart; i++) {
+            float y = series.getY(i);
+            min = Math.min(min, y);
+            max = Math.max(max, y);
+            sumX += series.getX(i);
+            sumY += y;
+        }
+        int index = bucket - storageBases[1];
+        minYs[1][index] = min;
+        maxYs[1][index] = max;
+        meanXs[1][index] = sumX / (end - start);
+        meanYs[1][index] = sumY / (end - start);
+    }
+
+    private void mergeLevel(int level, int bucket, int absEnd) {
+        int child = level - 1;
+        int index = bucket - storageBases[level];
+        int left = (bucket << 1) - storageBases[child];
+        int right = left + 1;
+        int rightBucket = (bucket << 1) + 1;
+        if (left < 0) { // 左边的子桶已经被移除
+            left = right;
+        }
+        if (rightBucket > (absEnd - 1) >> child) { // 右边的子桶还不存在
+            right = left;
+        }
+        if (left == right) {
+            minYs[level][index] = minYs[child][left];
+            maxYs[level][index] = maxYs[child][left];
+            meanXs[level][index] = meanXs[child][left];
+            meanYs[level][index] = meanYs[child][left];
+            return;
+        }
+        // 左边的子桶总是满的,右边的子桶可能不满,求平均值时按点数加权
+        float leftCount = 1 << child;
+        float rightCount = Math.min(absEnd, (rightBucket + 1) << child) - (rightBucket << child);
+        float total = leftCount + rightCount;
+        minYs[level][index] = Math.min(minYs[child][left], minYs[child][right]);
+        maxYs[level][index] = Math.max(maxYs[child][left], maxYs[child][right]);
+        meanXs[level][index] = (meanXs[child][left] * leftCount + meanXs[child][right] * rightCount) / total;
+        meanYs[level][index] = (meanYs[child][left] * leftCount + meanYs[child][right] * rightCount) / total;
+    }
+
+    private void ensureLevelCapacity(int level, int firstBucket, int lastBucket) {
+        float[] current = minYs[level];
+        int live = lastBucket - firstBucket + 1;
+        if (current != null && firstBucket - storageBases[level] > current.length / 2) {
+            // 开头被移除的桶过多时整体前移,避免数组无限增长
+            int offset = firstBucket - storageBases[level];
+            int moved = Math.max(0, Math.min(current.length - offset, live));
+            System.arraycopy(minYs[level], offset, minYs[level], 0, moved);
+            System.arraycopy(maxYs[level], offset, maxYs[level], 0, moved);
+            System.arraycopy(meanXs[level], offset, meanXs[level], 0, moved);
+            System.arraycopy(meanYs[level], offset, meanYs[level], 0, moved);
+            storageBases[level] = firstBucket;
+        }
+        int capacity = lastBucket - storageBases[level] + 1;
+        if (current != null && current.length >= capacity) {
+            return;
+        }
+        int newCapacity = current == null ? capacity : Math.max(capacity, current.length * 2);
+        minYs[level] = copyOrCreate(current, newCapacity);
+        maxYs[level] = copyOrCreate(maxYs[level], newCapacity);
+        meanXs[level] = copyOrCreate(meanXs[level], newCapacity);
+        meanYs[level] = copyOrCreate(meanYs[level], newCapacity);
+    }
+
+    private static float[] copyOrCreate(float[] array, int capacity) {
+        return array == null ? new float[capacity] : Arrays.copyOf(array, capacity);
+    }
+}
@@ -0,0 +1,426 @@
+package com.example.myapplication;
+
+import android.graphics.PointF;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 项目：  My Application
+ * 类名：  WaveSeries.java
+ * 时间：  2026/10/18 10:12
+ * 描述：  列式存储的波形数据序列.X/Y分别保存在两个并行的float数组中,不再为每个数据点创建PointF对象.
+ * 设置了环形缓冲区容量后,追加数据超出容量时会覆盖最早的数据点.
+ */
+public class WaveSeries {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * 数据点X坐标(基于原始数据)
+     */
+    private float[] xs = new float[DEFAULT_CAPACITY];
+
+    /**
+     * 数据点Y坐标(基于原始数据)
+     */
+    private float[] ys = new float[DEFAULT_CAPACITY];
+
+    /**
+     * 直接引用的外部数据(例如映射到内存的文件),不为null时代替xs/ys.只读,追加数据前会先拷贝到xs/ys
+     */
+    private FloatBuffer mappedXs;
+    private FloatBuffer mappedYs;
+
+    /**
+     * 有效数据点个数
+     */
+    private int count;
+
+    /**
+     * 环形缓冲区容量,0表示不限容量
+     */
+    private int ringCapacity;
+
+    /**
+     * 环形缓冲区模式下第一个有效数据点在数组中的位置
+     */
+    private int head;
+
+    /**
+     * 自上次重置以来,因为环形缓冲区已满而被移除的数据点个数.
+     * 第index个数据点的绝对序号是 evictedCount + index,绝对序号在追加数据时保持不变
+     */
+    private int evictedCount;
+
+    /**
+     * X坐标是否单调不减
+     */
+    private boolean isSortedX = true;
+
+    /**
+     * 数据版本号,每次数据变化都会递增.用于判断基于该数据计算出的缓存是否过期
+     */
+    private int version;
+
+    /**
+     * 数据重置版本号,只有整体替换或清空数据时才递增,追加数据不会递增.
+     * 基于该数据的增量计算(例如降采样)可以据此判断是继续增量计算还是全部重算
+     */
+    private int resetVersion;
+
+    /**
+     * 设置数据.数据会被拷贝到内部数组中,调用方可以继续复用传入的数组.
+     * 环形缓冲区模式下只保留最后ringCapacity个数据点
+     *
+     * @param xs 数据点X坐标
+     * @param ys 数据点Y坐标
+     * @param count 有效数据点个数,超出数组长度的部分会被忽略
+     */
+    public void setData(float[] xs, float[] ys, int count) {
+        releaseMapped();
+        if (xs == null || ys == null || count <= 0) {
+            clear();
+            return;
+        }
+        int ultraCount = Math.min(count, Math.min(xs.length, ys.length));
+        int from = ringCapacity > 0 ? Math.max(0, ultraCount - ringCapacity) : 0;
+        ultraCount -= from;
+        ensureCapacity(ultraCount);
+        System.arraycopy(xs, from, this.xs, 0, ultraCount);
+        System.arraycopy(ys, from, this.ys, 0, ultraCount);
+        this.count = ultraCount;
+        reset();
+    }
+
+    /**
+     * 设置数据(兼容旧的PointF列表接口).环形缓冲区模式下只保留最后ringCapacity个数据点
+     *
+     * @param points 数据点
+     */
+    public void setPoints(List<PointF> points) {
+        releaseMapped();
+        if (points == null || points.isEmpty()) {
+            clear();
+            return;
+        }
+        int size = points.size();
+        int from = ringCapacity > 0 ? Math.max(0, size - ringCapacity) : 0;
+        ensureCapacity(size - from);
+        for (int i = from; i < size; i++) {
+            PointF pointF = points.get(i);
+            xs[i - from] = pointF.x;
+            ys[i - from] = pointF.y;
+        }
+        count = size - from;
+        reset();
+    }
+
+    /**
+     * 直接引用外部数据,不拷贝(例如ChartDataFile中映射到内存的数据列).从各自当前position开始,取两者剩余长度中较小的一个.
+     * 环形缓冲区模式下需要可写的数组,只拷贝最后ringCapacity个数据点
+     *
+     * @param xs 数据点X坐标
+     * @param ys 数据点Y坐标
+     * @param isSortedX 调用方已知X坐标单调不减时传true,省去一次遍历检查(映射的文件不需要整个读入)
+     */
+    public void setData(FloatBuffer xs, FloatBuffer ys, boolean isSortedX) {
+        releaseMapped();
+        if (xs == null || ys == null || Math.min(xs.remaining(), ys.remaining()) == 0) {
+            clear();
+            return;
+        }
+        int ultraCount = Math.min(xs.remaining(), ys.remaining());
+        if (ringCapacity > 0) {
+            int from = Math.max(0, ultraCount - ringCapacity);
+            count = ultraCount - from;
+            FloatBuffer source = xs.duplicate();
+            source.position(xs.position() + from);
+            source.get(this.xs, 0, count);
+            source = ys.duplicate();
+            source.position(ys.position() + from);
+            source.get(this.ys, 0, count);
+            reset();
+            return;
+        }
+        mappedXs = xs.slice();
+        mappedYs = ys.slice();
+        count = ultraCount;
+        head = 0;
+        evictedCount = 0;
+        this.isSortedX = isSortedX || checkSortedX();
+        version++;
+        resetVersion++;
+    }
+
+    /**
+     * 从压缩存储中解码一个X窗口的数据,直接写入内部数组(窗口左右两侧各多带一个点).
+     * 环形缓冲区模式下只保留最后ringCapacity个数据点
+     *
+     * @param store 压缩存储
+     * @param lowerX 窗口下限
+     * @param upperX 窗口上限
+     */
+    public void setData(CompressedWaveStore store, float lowerX, float upperX) {
+        if (store == null) {
+            clear();
+            return;
+        }
+        releaseMapped();
+        int capacity = store.getWindowCapacity(lowerX, upperX);
+        if (xs.length < capacity) { // 旧数据会被覆盖,不需要拷贝
+            xs = new float[Math.max(capacity, ringCapacity)];
+            ys = new float[xs.length];
+        }
+        int decodedCount = store.decode(lowerX, upperX, xs, ys);
+        int from = ringCapacity > 0 ? Math.max(0, decodedCount - ringCapacity) : 0;
+        if (from > 0) {
+            System.arraycopy(xs, from, xs, 0, decodedCount - from);
+            System.arraycopy(ys, from, ys, 0, decodedCount - from);
+        }
+        count = decodedCount - from;
+        reset();
+    }
+
+    /**
+     * 在末尾追加一个数据点.环形缓冲区已满时会移除最早的数据点
+     *
+     * @param x 数据点X坐标
+     * @param y 数据点Y坐标
+     */
+    public void append(float x, float y) {
+        copyMapped();
+        appendInternal(x, y);
+        version++;
+    }
+
+    /**
+     * 在末尾追加多个数据点.环形缓冲区已满时会移除最早的数据点
+     *
+     * @param xs 数据点X坐标
+     * @param ys 数据点Y坐标
+     * @param count 要追加的数据点个数,超出数组长度的部分会被忽略
+     */
+    public void append(float[] xs, float[] ys, int count) {
+        if (xs == null || ys == null || count <= 0) {
+            return;
+        }
+        copyMapped();
+        int ultraCount = Math.min(count, Math.min(xs.length, ys.length));
+        if (ringCapacity > 0) {
+            for (int i = 0; i < ultraCount; i++) {
+                appendInternal(xs[i], ys[i]);
+            }
+            version++;
+            return;
+        }
+        ensureCapacity(this.count + ultraCount);
+        System.arraycopy(xs, 0, this.xs, this.count, ultraCount);
+        System.arraycopy(ys, 0, this.ys, this.count, ultraCount);
+        int from = Math.max(1, this.count);
+        this.count += ultraCount;
+        for (int i = from; i < this.count && isSortedX; i++) {
+            if (this.xs[i] < this.xs[i - 1]) {
+                isSortedX = false;
+            }
+        }
+        version++;
+    }
+
+    private void appendInternal(float x, float y) {
+        if (count > 0 && x < getX(count - 1)) {
+            isSortedX = false;
+        }
+        if (ringCapacity <= 0) {
+            ensureCapacity(count + 1);
+            xs[count] = x;
+            ys[count] = y;
+            count++;
+            return;
+        }
+        if (count == ringCapacity) { // 缓冲区已满,移除最早的数据点
+            head = head + 1 == ringCapacity ? 0 : head + 1;
+            evictedCount++;
+            count--;
+        }
+        int slot = getSlot(count);
+        xs[slot] = x;
+        ys[slot] = y;
+        count++;
+    }
+
+    /**
+     * 设置环形缓冲区容量.设置后会清空已有数据
+     *
+     * @param capacity 容量,<=0表示不限容量
+     */
+    public void setRingCapacity(int capacity) {
+        ringCapacity = Math.max(0, capacity);
+        if (ringCapacity > 0) {
+            xs = new float[ringCapacity];
+            ys = new float[ringCapacity];
+        }
+        clear();
+    }
+
+    public int getRingCapacity() {
+        return ringCapacity;
+    }
+
+    public void clear() {
+        releaseMapped();
+        count = 0;
+        reset();
+    }
+
+    private void reset() {
+        head = 0;
+        evictedCount = 0;
+        isSortedX = checkSortedX();
+        version++;
+        resetVersion++;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public float getX(int index) {
+        if (mappedXs != null) {
+            return mappedXs.get(index);
+        }
+        return xs[getSlot(index)];
+    }
+
+    public float getY(int index) {
+        if (mappedYs != null) {
+            return mappedYs.get(index);
+        }
+        return ys[getSlot(index)];
+    }
+
+    /**
+     * 获取数据点在内部数组中的位置.环形缓冲区模式下位置等于 绝对序号 % ringCapacity,
+     * 与数据点一一对应的缓存可以用同样的位置保存,追加数据时不需要整体移动
+     *
+     * @param index 数据点序号
+     * @return 内部数组中的位置
+     */
+    public int getSlot(int index) {
+        if (ringCapacity <= 0) {
+            return index;
+        }
+        int slot = head + index;
+        return slot >= ringCapacity ? slot - ringCapacity : slot;
+    }
+
+    /**
+     * 获取自上次重置以来被环形缓冲区移除的数据点个数,即第0个数据点的绝对序号
+     *
+     * @return 被移除的数据点个数
+     */
+    public int getEvictedCount() {
+        return evictedCount;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int getResetVersion() {
+        return resetVersion;
+    }
+
+    /**
+     * X坐标是否单调不减.只有有序的序列才能做二分查找等优化
+     *
+     * @return true有序
+     */
+    public boolean isSortedX() {
+        return isSortedX;
+    }
+
+    /**
+     * 二分查找第一个X坐标大于等于x的数据点序号.仅在isSortedX()为true时有效
+     *
+     * @param x 原始数据X坐标
+     * @return 数据点序号,所有点都小于x时返回size()
+     */
+    public int lowerBound(float x) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getX(mid) < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 二分查找第一个X坐标大于x的数据点序号.仅在isSortedX()为true时有效
+     *
+     * @param x 原始数据X坐标
+     * @return 数据点序号,所有点都小于等于x时返回size()
+     */
+    public int upperBound(float x) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getX(mid) <= x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void releaseMapped() {
+        mappedXs = null;
+        mappedYs = null;
+    }
+
+    /**
+     * 追加数据前把直接引用的外部数据拷贝到可写的数组中
+     */
+    private void copyMapped() {
+        if (mappedXs == null) {
+            return;
+        }
+        int capacity = Math.max(DEFAULT_CAPACITY, count * 2);
+        xs = new float[capacity];
+        ys = new float[capacity];
+        mappedXs.position(0);
+        mappedXs.get(xs, 0, count);
+        mappedYs.position(0);
+        mappedYs.get(ys, 0, count);
+        releaseMapped();
+    }
+
+    private boolean checkSortedX() {
+        for (int i = 1; i < count; i++) {
+            if (getX(i) < getX(i - 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (xs.length >= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, xs.length * 2);
+        xs = Arrays.copyOf(xs, newCapacity);
+        ys = Arrays.copyOf(ys, newCapacity);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.myapplication;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 项目：  My Application
+ * 类名：  ChartDataFileTest.java
+ * 时间：  2026/10/18 22:20
+ * 描述：  列式数据文件读写测试:float32/int64两种X列和柱状图数值列写出后映射读回一致,
+ * 魔数错误、版本号错误、文件被截断时映射失败
+ */
+public class ChartDataFileTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("chart", ".swcf");
+    }
+
+    @After
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    @Test
+    public void roundTrip_floatAndLongColumns() throws IOException {
+        float[] floatXs = {0f, 0.5f, 0.5f, 2f, 7.25f};
+        float[] floatYs = {1f, -2f, 3.5f, Float.NaN, -0f};
+        long[] longXs = {1_700_000_000_000L, 1_700_000_000_250L, Long.MAX_VALUE};
+        float[] longYs = {10f, 20f, 30f, 99f}; // 只写前3个
+        float[] bars = {4f, 8f, 15f, 16f, 23f, 42f};
+        new ChartDataFile.Writer()
+                .addWaveSeries(floatXs, floatYs, floatXs.length)
+                .addWaveSeries(longXs, longYs, 3)
+                .addBarSeries(bars, bars.length)
+                .writeTo(file);
+
+        ChartDataFile dataFile = ChartDataFile.map(file);
+        assertNotNull(dataFile);
+        assertEquals(3, dataFile.getSeriesCount());
+
+        assertEquals(ChartDataFile.SERIES_WAVE, dataFile.getSeriesType(0));
+        assertEquals(ChartDataFile.COLUMN_FLOAT, dataFile.getXColumnType(0));
+        assertEquals(floatXs.length, dataFile.getSeriesSize(0));
+        assertTrue(dataFile.isSortedX(0));
+        assertNull(dataFile.getXLongBuffer(0));
+        assertFloats(floatXs, dataFile.getXBuffer(0));
+        assertFloats(floatYs, dataFile.getYBuffer(0));
+
+        assertEquals(ChartDataFile.SERIES_WAVE, dataFile.getSeriesType(1));
+        assertEquals(ChartDataFile.COLUMN_LONG, dataFile.getXColumnType(1));
+        assertEquals(3, dataFile.getSeriesSize(1));
+        assertTrue(dataFile.isSortedX(1));
+        assertNull(dataFile.getXBuffer(1));
+        LongBuffer longBuffer = dataFile.getXLongBuffer(1);
+        assertEquals(longXs.length, longBuffer.remaining());
+        for (int i = 0; i < longXs.length; i++) {
+            assertEquals(longXs[i], longBuffer.get(i));
+        }
+        FloatBuffer longYBuffer = dataFile.getYBuffer(1);
+        assertEquals(3, longYBuffer.remaining());
+        assertEquals(30f, longYBuffer.get(2), 0);
+
+        assertEquals(ChartDataFile.SERIES_BAR, dataFile.getSeriesType(2));
+        assertEquals(ChartDataFile.COLUMN_NONE, dataFile.getXColumnType(2));
+        assertFalse(dataFile.isSortedX(2));
+        assertNull(dataFile.getXBuffer(2));
+        assertFloats(bars, dataFile.getYBuffer(2));
+    }
+
+    @Test
+    public void unsortedX_flagCleared() throws IOException {
+        new ChartDataFile.Writer()
+                .addWaveSeries(new float[]{0f, 2f, 1f}, new float[]{0f, 0f, 0f}, 3)
+                .addWaveSeries(new long[]{5L, 4L}, new float[]{0f, 0f}, 2)
+                .writeTo(file);
+        ChartDataFile dataFile = ChartDataFile.map(file);
+        assertNotNull(dataFile);
+        assertFalse(dataFile.isSortedX(0));
+        assertFalse(dataFile.isSortedX(1));
+    }
+
+    @Test
+    public void writeTo_replacesExistingFile() throws IOException {
+        new ChartDataFile.Writer().addBarSeries(new float[100], 100).writeTo(file);
+        new ChartDataFile.Writer().addBarSeries(new float[]{1f, 2f}, 2).writeTo(file);
+        ChartDataFile dataFile = ChartDataFile.map(file);
+        assertNotNull(dataFile);
+        assertEquals(2, dataFile.getSeriesSize(0));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void map_rejectsBadMagic() throws IOException {
+        writeSample();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(0);
+            randomAccessFile.write('X');
+        }
+        assertNull(ChartDataFile.map(file));
+    }
+
+    @Test
+    public void map_rejectsBadVersion() throws IOException {
+        writeSample();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(4);
+            randomAccessFile.write(ChartDataFile.FILE_VERSION + 1);
+        }
+        assertNull(ChartDataFile.map(file));
+    }
+
+    @Test
+    public void map_rejectsTruncatedFile() throws IOException {
+        writeSample();
+        long length = file.length();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(length - 4); // 最后一列少一个数值
+        }
+        assertNull(ChartDataFile.map(file));
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(20); // 序列描述不完整
+        }
+        assertNull(ChartDataFile.map(file));
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(8); // 文件头不完整
+        }
+        assertNull(ChartDataFile.map(file));
+    }
+
+    @Test
+    public void map_rejectsMissingFile() {
+        assertNull(ChartDataFile.map(null));
+        assertNull(ChartDataFile.map(new File(file.getPath() + ".missing")));
+    }
+
+    private void writeSample() throws IOException {
+        new ChartDataFile.Writer()
+                .addWaveSeries(new float[]{0f, 1f, 2f}, new float[]{3f, 4f, 5f}, 3)
+                .addBarSeries(new float[]{6f, 7f}, 2)
+                .writeTo(file);
+        assertNotNull(ChartDataFile.map(file));
+    }
+
+    private static void assertFloats(float[] expected, FloatBuffer actual) {
+        assertEquals(expected.length, actual.remaining());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("index " + i, Float.floatToRawIntBits(expected[i]), Float.floatToRawIntBits(actual.get(i)));
+        }
+    }
+}
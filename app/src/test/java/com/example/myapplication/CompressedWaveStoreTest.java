@@ -0,0 +1,210 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 项目：  My Application
+ * 类名：  CompressedWaveStoreTest.java
+ * 时间：  2026/10/18 22:00
+ * 描述：  压缩存储编解码测试:解码结果与写入的数据逐位一致(二阶差分的X坐标、异或的Y坐标、跨块边界、特殊浮点值),
+ * 按X窗口解码时两侧各多带一个点,以及压缩率
+ */
+public class CompressedWaveStoreTest {
+    /**
+     * 与CompressedWaveStore的每块数据点个数一致
+     */
+    private static final int BLOCK_POINTS = 1024;
+
+    @Test
+    public void roundTrip_regularTimestamps() {
+        int count = BLOCK_POINTS * 3 + 17;
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = i * 10;
+            ys[i] = (float) Math.sin(i * 0.05);
+        }
+        assertRoundTrip(xs, ys, count);
+    }
+
+    @Test
+    public void roundTrip_irregularTimestamps() {
+        Random random = new Random(42);
+        int count = BLOCK_POINTS * 2 + 5;
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        float x = -500.25f;
+        for (int i = 0; i < count; i++) {
+            int step = random.nextInt(4);
+            x += step == 0 ? 0 : step * 0.37f + random.nextFloat(); // 包含X坐标相同的点
+            xs[i] = x;
+            ys[i] = random.nextFloat() * 2000 - 1000;
+        }
+        assertRoundTrip(xs, ys, count);
+    }
+
+    @Test
+    public void roundTrip_blockBoundaries() {
+        for (int count : new int[]{1, 2, BLOCK_POINTS - 1, BLOCK_POINTS, BLOCK_POINTS + 1, BLOCK_POINTS * 2}) {
+            float[] xs = new float[count];
+            float[] ys = new float[count];
+            for (int i = 0; i < count; i++) {
+                xs[i] = i;
+                ys[i] = i % 7;
+            }
+            assertRoundTrip(xs, ys, count);
+        }
+    }
+
+    @Test
+    public void roundTrip_specialValues() {
+        float[] specials = {Float.NaN, 0f, -0f, Float.MIN_VALUE, -Float.MIN_VALUE, 1e-40f, Float.MIN_NORMAL,
+                Float.MAX_VALUE, -Float.MAX_VALUE, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY,
+                Float.intBitsToFloat(0x7fc00001)};
+        int count = BLOCK_POINTS + specials.length * 2;
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = i;
+            ys[i] = specials[i % specials.length];
+        }
+        // X坐标同样可以是-0/+0/非规格化数,只要单调不减
+        xs[0] = -0f;
+        xs[1] = 0f;
+        xs[2] = Float.MIN_VALUE;
+        assertRoundTrip(xs, ys, count);
+    }
+
+    @Test
+    public void append_rejectsUnorderedAndNaNX() {
+        CompressedWaveStore store = new CompressedWaveStore();
+        assertTrue(store.append(1f, 1f));
+        assertFalse(store.append(0.5f, 2f));
+        assertFalse(store.append(Float.NaN, 2f));
+        assertTrue(store.append(1f, 3f));
+        assertEquals(2, store.size());
+
+        int appended = store.append(new float[]{2f, 3f, 2.5f, 4f}, new float[]{0f, 0f, 0f, 0f}, 4);
+        assertEquals(2, appended);
+        assertEquals(4, store.size());
+        assertEquals(0, store.append(null, new float[1], 1));
+        assertEquals(1, store.append(new float[]{5f, 6f}, new float[]{0f}, 10));
+    }
+
+    @Test
+    public void decodeWindow_includesNeighbours() {
+        CompressedWaveStore store = new CompressedWaveStore();
+        int count = BLOCK_POINTS * 3;
+        for (int i = 0; i < count; i++) {
+            store.append(i, -i);
+        }
+        float lower = BLOCK_POINTS - 10.5f; // 跨越第一块和第二块的边界
+        float upper = BLOCK_POINTS * 2 + 3.5f;
+        int capacity = store.getWindowCapacity(lower, upper);
+        float[] outXs = new float[capacity];
+        float[] outYs = new float[capacity];
+        int decoded = store.decode(lower, upper, outXs, outYs);
+
+        int first = (int) Math.floor(lower); // 窗口左侧的最后一个点
+        int last = (int) Math.ceil(upper); // 窗口右侧的第一个点
+        assertEquals(last - first + 1, decoded);
+        for (int i = 0; i < decoded; i++) {
+            assertEquals(first + i, outXs[i], 0);
+            assertEquals(-(first + i), outYs[i], 0);
+        }
+    }
+
+    @Test
+    public void decodeWindow_outsideData() {
+        CompressedWaveStore store = new CompressedWaveStore();
+        for (int i = 0; i < 100; i++) {
+            store.append(i, i * 2);
+        }
+        float[] outXs = new float[4];
+        float[] outYs = new float[4];
+        // 窗口在所有数据右侧,只带上最后一个点
+        assertEquals(1, store.decode(200f, 300f, outXs, outYs));
+        assertEquals(99f, outXs[0], 0);
+        // 窗口在所有数据左侧,只带上第一个点
+        assertEquals(1, store.decode(-300f, -200f, outXs, outYs));
+        assertEquals(0f, outXs[0], 0);
+        // 无效窗口
+        assertEquals(0, store.decode(10f, 5f, outXs, outYs));
+        assertEquals(0, store.getWindowCapacity(10f, 5f));
+    }
+
+    @Test
+    public void decodeWindow_stopsAtOutputLength() {
+        CompressedWaveStore store = new CompressedWaveStore();
+        for (int i = 0; i < 100; i++) {
+            store.append(i, i);
+        }
+        float[] outXs = new float[5];
+        float[] outYs = new float[8];
+        assertEquals(5, store.decode(10f, 50f, outXs, outYs));
+        assertEquals(9f, outXs[0], 0);
+        assertEquals(13f, outXs[4], 0);
+    }
+
+    @Test
+    public void compressionRatio() {
+        CompressedWaveStore store = new CompressedWaveStore();
+        assertEquals(1f, store.getCompressionRatio(), 0);
+
+        // 等间隔采样、取值很少变化:X每个点1位,Y大多数点1位
+        int count = BLOCK_POINTS * 8;
+        for (int i = 0; i < count; i++) {
+            store.append(i * 20, (i / 64) % 5);
+        }
+        long rawBytes = count * 8L;
+        assertEquals(rawBytes / (float) store.getCompressedBytes(), store.getCompressionRatio(), 1e-3f);
+        assertTrue("ratio " + store.getCompressionRatio(), store.getCompressionRatio() > 10);
+
+        store.clear();
+        assertEquals(0, store.size());
+        assertTrue(store.isEmpty());
+        assertEquals(0, store.getCompressedBytes());
+        assertEquals(1f, store.getCompressionRatio(), 0);
+    }
+
+    @Test
+    public void compressionRatio_noisyData() {
+        CompressedWaveStore store = new CompressedWaveStore();
+        Random random = new Random(7);
+        int count = BLOCK_POINTS * 4;
+        for (int i = 0; i < count; i++) {
+            store.append(i, random.nextFloat());
+        }
+        // 随机噪声几乎无法压缩,但编码开销有上限:X每个点1位,Y最多多出13位
+        assertTrue("ratio " + store.getCompressionRatio(), store.getCompressionRatio() > 1.2f);
+    }
+
+    /**
+     * 写入数据后整体解码,逐位比较;clear()后再写一遍,结果相同
+     */
+    private static void assertRoundTrip(float[] xs, float[] ys, int count) {
+        CompressedWaveStore store = new CompressedWaveStore();
+        for (int pass = 0; pass < 2; pass++) {
+            assertEquals(count, store.append(xs, ys, count));
+            assertEquals(count, store.size());
+            float lower = xs[0];
+            float upper = xs[count - 1];
+            int capacity = store.getWindowCapacity(lower, upper);
+            assertTrue(capacity >= count);
+            float[] outXs = new float[capacity];
+            float[] outYs = new float[capacity];
+            assertEquals(count, store.decode(lower, upper, outXs, outYs));
+            for (int i = 0; i < count; i++) {
+                assertEquals("x " + i, Float.floatToRawIntBits(xs[i]), Float.floatToRawIntBits(outXs[i]));
+                assertEquals("y " + i, Float.floatToRawIntBits(ys[i]), Float.floatToRawIntBits(outYs[i]));
+            }
+            store.clear();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.myapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.util.Range;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 项目：  My Application
+ * 类名：  SmoothWaveDrawableCacheTest.java
+ * 时间：  2026/10/18 21:30
+ * 描述：  几何缓存测试:重复绘制时复用上次的结果,数据、坐标轴范围、边界、线宽任何一项变化时只重新计算一次
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SmoothWaveDrawableCacheTest {
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 200;
+
+    private SmoothWaveDrawable drawable;
+    private Canvas canvas;
+
+    @Before
+    public void setUp() {
+        drawable = new SmoothWaveDrawable();
+        drawable.setBounds(0, 0, WIDTH, HEIGHT);
+        drawable.setData(new float[]{0f, 1f, 2f, 3f, 4f}, new float[]{0f, 4f, 9f, 0f, 13f}, 5,
+                new Range<>(0f, 4f), new Range<>(0f, 22f));
+        canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        drawable.draw(canvas);
+    }
+
+    @Test
+    public void redraw_reusesGeometry() {
+        int buildCount = drawable.getGeometryBuildCount();
+        int hitCount = drawable.getGeometryCacheHitCount();
+        for (int i = 0; i < 5; i++) {
+            drawable.draw(canvas);
+        }
+        assertEquals(buildCount, drawable.getGeometryBuildCount());
+        assertEquals(hitCount + 5, drawable.getGeometryCacheHitCount());
+    }
+
+    @Test
+    public void dataChange_rebuildsOnce() {
+        int buildCount = drawable.getGeometryBuildCount();
+        drawable.setOriginData(new float[]{0f, 1f, 2f}, new float[]{3f, 2f, 1f}, 3);
+        drawable.draw(canvas);
+        drawable.draw(canvas);
+        assertEquals(buildCount + 1, drawable.getGeometryBuildCount());
+
+        drawable.appendPoint(3f, 5f);
+        drawable.draw(canvas);
+        assertEquals(buildCount + 2, drawable.getGeometryBuildCount());
+    }
+
+    @Test
+    public void axisRangeChange_rebuildsOnce() {
+        int buildCount = drawable.getGeometryBuildCount();
+        drawable.setAxisXRange(new Range<>(0f, 2f));
+        drawable.draw(canvas);
+        drawable.draw(canvas);
+        assertEquals(buildCount + 1, drawable.getGeometryBuildCount());
+
+        drawable.setAxisYRange(new Range<>(-5f, 30f));
+        drawable.draw(canvas);
+        assertEquals(buildCount + 2, drawable.getGeometryBuildCount());
+    }
+
+    @Test
+    public void sameAxisRangeValues_keepGeometry() {
+        int buildCount = drawable.getGeometryBuildCount();
+        drawable.setAxisXRange(new Range<>(0f, 4f));
+        drawable.setAxisYRange(new Range<>(0f, 22f));
+        drawable.draw(canvas);
+        assertEquals(buildCount, drawable.getGeometryBuildCount());
+    }
+
+    @Test
+    public void boundsChange_rebuildsOnce() {
+        int buildCount = drawable.getGeometryBuildCount();
+        drawable.setBounds(0, 0, WIDTH / 2, HEIGHT);
+        drawable.draw(canvas);
+        drawable.draw(canvas);
+        assertEquals(buildCount + 1, drawable.getGeometryBuildCount());
+
+        drawable.setBounds(0, 0, WIDTH / 2, HEIGHT);
+        drawable.draw(canvas);
+        assertEquals(buildCount + 1, drawable.getGeometryBuildCount());
+    }
+
+    @Test
+    public void strokeWidthChange_rebuildsOnce() {
+        int buildCount = drawable.getGeometryBuildCount();
+        drawable.setLineStrokeWidth(10);
+        drawable.draw(canvas);
+        drawable.draw(canvas);
+        assertEquals(buildCount + 1, drawable.getGeometryBuildCount());
+
+        drawable.setLineStrokeWidth(10);
+        drawable.draw(canvas);
+        assertEquals(buildCount + 1, drawable.getGeometryBuildCount());
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * 项目：  My Application
+ * 类名：  TopKSelectorTest.java
+ * 时间：  2026/10/18 23:00
+ * 描述：  流式Top-K选择测试:随机修改、删除、调整名次个数后,输出的排名与全部排序的结果一致,按名次分段读取的结果也一致;
+ * 批量加入后一次排序建立的排名与逐个加入的结果一致
+ */
+public class TopKSelectorTest {
+    @Test
+    public void ranking_matchesFullSort() {
+        for (int capacity : new int[]{1, 5, 40, Integer.MAX_VALUE}) {
+            Random random = new Random(capacity);
+            TopKSelector selector = new TopKSelector(capacity);
+            Reference reference = new Reference();
+            for (int step = 0; step < 4000; step++) {
+                int key = random.nextInt(60);
+                if (random.nextInt(8) == 0) {
+                    assertEquals(reference.remove(key), selector.remove(key));
+                } else {
+                    int value = random.nextInt(30); // 取值范围小,经常出现数值相同的键
+                    assertEquals(reference.update(key, value), selector.update(key, value));
+                }
+                if (step % 97 == 0) {
+                    assertRanking(selector, reference, capacity);
+                }
+            }
+            assertRanking(selector, reference, capacity);
+        }
+    }
+
+    @Test
+    public void setCapacity_movesBetweenHeaps() {
+        TopKSelector selector = new TopKSelector(3);
+        Reference reference = new Reference();
+        for (int key = 0; key < 20; key++) {
+            selector.update(key, key * 7 % 11);
+            reference.update(key, key * 7 % 11);
+        }
+        assertRanking(selector, reference, 3);
+        selector.setCapacity(Integer.MAX_VALUE);
+        assertRanking(selector, reference, Integer.MAX_VALUE);
+        selector.setCapacity(8);
+        assertRanking(selector, reference, 8);
+        selector.setCapacity(0);
+        assertEquals(0, selector.getTopSize());
+        assertEquals(20, selector.size());
+    }
+
+    @Test
+    public void sameValue_keepsInsertionOrder() {
+        TopKSelector selector = new TopKSelector(Integer.MAX_VALUE);
+        selector.update("a", 5);
+        selector.update("b", 5);
+        selector.update("c", 5);
+        selector.update("b", 9);
+        selector.update("b", 5); // 回到原来的数值,仍然按加入顺序排在a后面
+        assertFalse(selector.update("c", 5));
+        Object[] keys = new Object[3];
+        int[] values = new int[3];
+        assertEquals(3, selector.getRanking(keys, values));
+        assertEquals("a", keys[0]);
+        assertEquals("b", keys[1]);
+        assertEquals("c", keys[2]);
+    }
+
+    @Test
+    public void rankingWindow() {
+        TopKSelector selector = new TopKSelector(Integer.MAX_VALUE);
+        for (int key = 0; key < 100; key++) {
+            selector.update(key, key);
+        }
+        Object[] keys = new Object[10];
+        int[] values = new int[10];
+        assertEquals(10, selector.getRanking(20, 10, keys, values));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(99 - 20 - i, values[i]);
+            assertEquals(99 - 20 - i, keys[i]);
+        }
+        assertEquals(5, selector.getRanking(95, 10, keys, values)); // 超出的部分不输出
+        assertEquals(0, selector.getRanking(100, 10, keys, values));
+        assertEquals(99, selector.getValue(0));
+        assertEquals(0, selector.getValue(99));
+
+        selector.update(3, 1000); // 从倒数第4名升到第1名
+        assertEquals(1000, selector.getValue(0));
+        assertEquals(99, selector.getValue(1));
+        selector.update(3, -1); // 降到最后一名
+        assertEquals(99, selector.getValue(0));
+        assertEquals(-1, selector.getValue(99));
+    }
+
+    @Test
+    public void add_matchesUpdate() {
+        for (int capacity : new int[]{0, 3, 40, Integer.MAX_VALUE}) {
+            Random random = new Random(capacity);
+            TopKSelector selector = new TopKSelector(capacity);
+            Reference reference = new Reference();
+            selector.update("old", 1);
+            selector.clear();
+            for (int key = 0; key < 200; key++) {
+                int value = random.nextInt(20) - 10; // 包含负数和相同的数值
+                selector.add(key, value);
+                reference.update(key, value);
+            }
+            selector.add(5, 100); // 重复的键按update()处理
+            reference.update(5, 100);
+            assertEquals(200, selector.size());
+            assertRanking(selector, reference, capacity);
+
+            // 建立之后继续逐个修改、删除、加入
+            for (int step = 0; step < 500; step++) {
+                int key = random.nextInt(250);
+                if (random.nextInt(6) == 0) {
+                    assertEquals(reference.remove(key), selector.remove(key));
+                } else {
+                    int value = random.nextInt(20);
+                    selector.add(key, value);
+                    reference.update(key, value);
+                }
+            }
+            assertRanking(selector, reference, capacity);
+        }
+    }
+
+    @Test
+    public void add_extremeValues() {
+        TopKSelector selector = new TopKSelector(2);
+        selector.add("min", Integer.MIN_VALUE);
+        selector.add("max", Integer.MAX_VALUE);
+        selector.add("zero", 0);
+        selector.add("minus", -1);
+        Object[] keys = new Object[2];
+        int[] values = new int[2];
+        assertEquals(2, selector.getRanking(keys, values));
+        assertEquals("max", keys[0]);
+        assertEquals("zero", keys[1]);
+        selector.setCapacity(4);
+        assertEquals(-1, selector.getValue(2));
+        assertEquals(Integer.MIN_VALUE, selector.getValue(3));
+    }
+
+    private static void assertRanking(TopKSelector selector, Reference reference, int capacity) {
+        List<Object> expectedKeys = reference.sortedKeys();
+        int expectedSize = Math.min(capacity, expectedKeys.size());
+        assertEquals(expectedKeys.size(), selector.size());
+        assertEquals(expectedSize, selector.getTopSize());
+        Object[] keys = new Object[expectedSize];
+        int[] values = new int[expectedSize];
+        assertEquals(expectedSize, selector.getRanking(keys, values));
+        for (int i = 0; i < expectedSize; i++) {
+            assertEquals("rank " + i, expectedKeys.get(i), keys[i]);
+            assertEquals("rank " + i, (int) reference.values.get(expectedKeys.get(i)), values[i]);
+            assertEquals(values[i], selector.getValue(i));
+        }
+        // 分段读取与整体读取一致
+        int from = expectedSize / 3;
+        Object[] windowKeys = new Object[4];
+        int[] windowValues = new int[4];
+        int count = selector.getRanking(from, 4, windowKeys, windowValues);
+        assertEquals(Math.max(0, Math.min(4, expectedSize - from)), count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(keys[from + i], windowKeys[i]);
+            assertEquals(values[from + i], windowValues[i]);
+        }
+    }
+
+    /**
+     * 对照实现:每次全部排序.数值相同时先加入的排在前面,删除后重新加入算新加入
+     */
+    private static class Reference {
+        final HashMap<Object, Integer> values = new HashMap<>();
+        final HashMap<Object, Long> orders = new HashMap<>();
+        long nextOrder;
+
+        boolean update(Object key, int value) {
+            Integer old = values.put(key, value);
+            if (old == null) {
+                orders.put(key, nextOrder++);
+                return true;
+            }
+            return old != value;
+        }
+
+        boolean remove(Object key) {
+            orders.remove(key);
+            return values.remove(key) != null;
+        }
+
+        List<Object> sortedKeys() {
+            List<Object> keys = new ArrayList<>(values.keySet());
+            keys.sort((a, b) -> {
+                int byValue = Integer.compare(values.get(b), values.get(a));
+                return byValue != 0 ? byValue : Long.compare(orders.get(a), orders.get(b));
+            });
+            return keys;
+        }
+    }
+}